@@ -0,0 +1,125 @@
+package com.example.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Прогон всех бенчмарков с -prof gc и сравнение с baseline.json.
+// Регрессия — время (нижняя граница доверительного интервала, чтобы не ловить шум)
+// или аллокации на операцию выросли больше чем на benchmark.threshold;
+// в этом случае процесс завершается с кодом 1 и сборка (mvn verify -Pbench) падает.
+// Все бенчмарки в режиме AverageTime, поэтому «больше» везде значит «хуже»
+public final class BenchmarkRunner {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+    // шум аллокаций на операцию: выравнивание объектов, TLAB и т.п.
+    private static final double ALLOC_TOLERANCE_BYTES = 16;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String include = System.getProperty("benchmark.include", ".*");
+        double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "0.10"));
+        Path baselinePath = Path.of(System.getProperty("benchmark.baseline", "baseline.json"));
+        boolean updateBaseline = Boolean.getBoolean("benchmark.update-baseline");
+        String resultFile = System.getProperty("benchmark.result", "target/jmh-result.json");
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        Map<String, Measurement> current = collect(new Runner(options).run());
+
+        if (updateBaseline || !Files.exists(baselinePath)) {
+            Map<String, Measurement> baseline = Files.exists(baselinePath) ? read(baselinePath) : new TreeMap<>();
+            baseline.putAll(current);
+            OBJECT_MAPPER.writeValue(baselinePath.toFile(), baseline);
+            System.out.printf("Baseline записан: %s (%d бенчмарков)%n", baselinePath, baseline.size());
+            return;
+        }
+
+        List<String> regressions = compare(read(baselinePath), current, threshold);
+        if (!regressions.isEmpty()) {
+            System.err.printf("%nРегрессии относительно %s (порог %.0f%%):%n", baselinePath, threshold * 100);
+            regressions.forEach(r -> System.err.println("  " + r));
+            System.exit(1);
+        }
+        System.out.printf("%nРегрессий нет (порог %.0f%%)%n", threshold * 100);
+    }
+
+    private static Map<String, Measurement> collect(Collection<RunResult> results) {
+        Map<String, Measurement> measurements = new TreeMap<>();
+        for (RunResult result : results) {
+            Result<?> primary = result.getPrimaryResult();
+            Result<?> alloc = result.getSecondaryResults().get(ALLOC_NORM);
+            double error = Double.isNaN(primary.getScoreError()) ? 0 : primary.getScoreError();
+            measurements.put(name(result), new Measurement(
+                    primary.getScore(), error, primary.getScoreUnit(), alloc == null ? null : alloc.getScore()));
+        }
+        return measurements;
+    }
+
+    private static List<String> compare(Map<String, Measurement> baseline, Map<String, Measurement> current,
+                                        double threshold) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((name, now) -> {
+            Measurement before = baseline.get(name);
+            if (before == null) {
+                System.out.printf("Нет в baseline, пропускаем: %s%n", name);
+                return;
+            }
+            if (now.score() - now.scoreError() > before.score() * (1 + threshold)) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s (+%.1f%%)", name,
+                        before.score(), now.score(), now.unit(), percent(before.score(), now.score())));
+            }
+            if (before.allocBytesPerOp() != null && now.allocBytesPerOp() != null
+                    && now.allocBytesPerOp() > before.allocBytesPerOp() * (1 + threshold) + ALLOC_TOLERANCE_BYTES) {
+                regressions.add(String.format("%s: %.0f -> %.0f B/op аллокаций (+%.1f%%)", name,
+                        before.allocBytesPerOp(), now.allocBytesPerOp(),
+                        percent(before.allocBytesPerOp(), now.allocBytesPerOp())));
+            }
+        });
+        return regressions;
+    }
+
+    private static String name(RunResult result) {
+        StringBuilder name = new StringBuilder(result.getParams().getBenchmark());
+        for (String key : result.getParams().getParamsKeys()) {
+            name.append(':').append(key).append('=').append(result.getParams().getParam(key));
+        }
+        return name.toString();
+    }
+
+    private static double percent(double before, double now) {
+        return (now - before) / before * 100;
+    }
+
+    private static Map<String, Measurement> read(Path path) throws IOException {
+        return OBJECT_MAPPER.readValue(path.toFile(), new TypeReference<TreeMap<String, Measurement>>() { });
+    }
+
+    record Measurement(double score, double scoreError, String unit, Double allocBytesPerOp) {
+    }
+}
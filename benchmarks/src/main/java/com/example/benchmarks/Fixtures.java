@@ -0,0 +1,34 @@
+package com.example.benchmarks;
+
+import com.example.springdemo.entity.User;
+import com.example.springdemo.model.enums.Role;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            users.add(user(id));
+        }
+        return users;
+    }
+
+    static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("Артур");
+        user.setLastName("Марченко");
+        user.setEmail("user" + id + "@mail.ru");
+        user.setAge(25);
+        user.setRole(Role.USER);
+        user.setCreatedAt(Instant.now());
+        return user;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.benchmarks;
+
+import com.example.common.dto.UserEventBinaryCodec;
+import com.example.common.dto.UserEventDeserializer;
+import com.example.common.dto.UserEventDto;
+import com.example.common.dto.UserEventTopics;
+import com.example.springdemo.dto.ErrorResponseDto;
+import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.mapper.UserMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.Link;
+
+import java.util.concurrent.TimeUnit;
+
+// Jackson на горячих путях: ответ UserResponseDto, ErrorResponseDto (создание + JSON)
+// и UserEventDto в Kafka — JSON против бинарного кодека из common-dto
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    // Настроен как JsonSerializer в spring-kafka и ObjectMapper в Boot: даты строкой ISO-8601
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final UserEventDeserializer userEventDeserializer = new UserEventDeserializer();
+
+    private UserResponseDto user;
+    private UserEventDto event;
+    private byte[] eventJson;
+    private byte[] eventBinary;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        user = new UserMapper().toDto(Fixtures.user(42));
+        user.add(Link.of("http://users.example.com/api/users/42", "self"));
+        user.add(Link.of("http://users.example.com/api/users/42", "update"));
+        user.add(Link.of("http://users.example.com/api/users/42", "delete"));
+
+        event = UserEventDto.created("ivan.petrov@example.com");
+        eventJson = objectMapper.writeValueAsBytes(event);
+        eventBinary = UserEventBinaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] userResponseToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] errorResponseToJson() throws JsonProcessingException {
+        ErrorResponseDto error = new ErrorResponseDto("USER_NOT_FOUND", "Пользователь с ID 999 не найден",
+                404, "Not Found", "/api/users/999");
+        return objectMapper.writeValueAsBytes(error);
+    }
+
+    @Benchmark
+    public byte[] userEventToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public byte[] userEventToBinary() {
+        return UserEventBinaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public UserEventDto userEventFromJson() {
+        return userEventDeserializer.deserialize(UserEventTopics.USER_CREATED, eventJson);
+    }
+
+    @Benchmark
+    public UserEventDto userEventFromBinary() {
+        return userEventDeserializer.deserialize(UserEventTopics.USER_CREATED, eventBinary);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.benchmarks;
+
+import com.example.springdemo.controller.UserController;
+import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.entity.User;
+import com.example.springdemo.mapper.UserLinks;
+import com.example.springdemo.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+// Страница из 50 пользователей: только маппинг, маппинг + ссылки по шаблонам UserLinks
+// и маппинг + linkTo(methodOn(...)) на каждого (как было до UserLinks)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserMapperBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private final UserMapper userMapper = new UserMapper();
+    private final UserLinks userLinks = new UserLinks();
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setServerName("users.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        page = Fixtures.users(PAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> toDto() {
+        List<UserResponseDto> result = new ArrayList<>(PAGE_SIZE);
+        for (User user : page) {
+            result.add(userMapper.toDto(user));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<UserResponseDto> toDtoWithLinkTemplates() {
+        UnaryOperator<UserResponseDto> representation = userLinks.forCurrentRequest();
+        List<UserResponseDto> result = new ArrayList<>(PAGE_SIZE);
+        for (User user : page) {
+            result.add(representation.apply(userMapper.toDto(user)));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<UserResponseDto> toDtoWithLinkToPerUser() {
+        List<UserResponseDto> result = new ArrayList<>(PAGE_SIZE);
+        for (User user : page) {
+            UserResponseDto dto = userMapper.toDto(user);
+            dto.add(linkTo(methodOn(UserController.class).getUser(user.getId(), null)).withSelfRel());
+            dto.add(linkTo(methodOn(UserController.class).updateUser(user.getId(), null, null)).withRel("update"));
+            dto.add(linkTo(methodOn(UserController.class).deleteUser(user.getId())).withRel("delete"));
+            result.add(dto);
+        }
+        return result;
+    }
+}
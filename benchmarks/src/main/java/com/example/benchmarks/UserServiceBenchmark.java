@@ -0,0 +1,76 @@
+package com.example.benchmarks;
+
+import com.example.springdemo.cache.UserCache;
+import com.example.springdemo.dto.CreateUserDto;
+import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.entity.User;
+import com.example.springdemo.kafka.UserCacheInvalidationPublisher;
+import com.example.springdemo.kafka.UserEventOutbox;
+import com.example.springdemo.mapper.UserMapper;
+import com.example.springdemo.repository.UserRepository;
+import com.example.springdemo.service.PasswordHashingService;
+import com.example.springdemo.service.UserService;
+import com.example.springdemo.service.UserServiceMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// UserService.createUser без БД и Kafka: репозиторий и outbox — заглушки,
+// хеширование настоящее, поэтому замер показывает в основном цену bcrypt при заданном cost
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+
+    @Param({"10"})
+    private int bcryptStrength;
+
+    private PasswordHashingService passwordHashingService;
+    private UserService userService;
+    private final AtomicLong ids = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(ids.incrementAndGet());
+            return user;
+        });
+
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(bcryptStrength),
+                new SimpleMeterRegistry(), 1, 64, Duration.ofSeconds(30), 0);
+        userService = new UserService(
+                userRepository,
+                passwordHashingService,
+                mock(UserEventOutbox.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new UserMapper(),
+                new UserCache(new SimpleMeterRegistry(), 1_000, Duration.ofMinutes(10)),
+                mock(UserCacheInvalidationPublisher.class),
+                new UserServiceMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Benchmark
+    public UserResponseDto createUser() {
+        return userService.createUser(new CreateUserDto("Артур", "Марченко", "artur@mail.ru", 25, "qwerty123"));
+    }
+}
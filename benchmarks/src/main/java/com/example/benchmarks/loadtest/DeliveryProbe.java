@@ -0,0 +1,57 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.notificationservice.dto.EmailMessage;
+import com.example.notificationservice.mail.EmailSender;
+import com.example.notificationservice.service.EmailService;
+import org.HdrHistogram.Recorder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// EmailSender notification-service на время нагрузочного теста: вместо отправки
+// фиксирует время от планового старта POST /api/users до передачи приветственного письма
+// в EmailSender — это и есть сквозное время через outbox, Kafka и консьюмер.
+// Создание и удаление идут разными топиками, порядок между ними не гарантирован,
+// поэтому ожидание закрывает только приветственное письмо, остальные письма на адрес не учитываются
+final class DeliveryProbe implements EmailSender {
+
+    // email -> плановый старт запроса на создание (System.nanoTime)
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Recorder endToEnd = new Recorder(3);
+
+    void expect(String email, long intendedStartNanos) {
+        pending.put(email, intendedStartNanos);
+    }
+
+    // создание не удалось — письма не будет
+    void forget(String email) {
+        pending.remove(email);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    Recorder endToEnd() {
+        return endToEnd;
+    }
+
+    @Override
+    public void send(EmailMessage message) {
+        if (!EmailService.WELCOME_SUBJECT.equals(message.subject())) {
+            return;
+        }
+        Long start = pending.remove(message.to());
+        if (start != null) {
+            endToEnd.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public List<EmailMessage> sendAll(List<EmailMessage> messages) {
+        messages.forEach(this::send);
+        return List.of();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.benchmarks.loadtest.OperationMix.Operation;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Задержки по операциям в микросекундах. Значение — от планового старта запроса,
+// а не от фактической отправки: если сервис тормозит и генератор отстает от графика,
+// ожидание в очереди попадает в замер (coordinated omission не прячет хвост)
+final class LatencyReport {
+
+    // HdrHistogram хранит значения в микросекундах, в отчете — миллисекунды
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Recorder(3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long intendedStartNanos, boolean success) {
+        latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos));
+        if (!success) {
+            errors.get(operation).increment();
+        }
+    }
+
+    // Печатает сводку и сохраняет распределения (*.hgrm) для HdrHistogram plotter
+    void print(PrintStream out, Duration measured, DeliveryProbe probe, Path output) throws IOException {
+        Files.createDirectories(output);
+        double seconds = measured.toNanos() / 1e9;
+
+        out.printf("%n%-10s %9s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "ops/s", "p50, ms", "p99, ms", "p99.9, ms", "max, ms");
+        long totalCount = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation).getIntervalHistogram();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            totalCount += histogram.getTotalCount();
+            printRow(out, operation.name().toLowerCase(Locale.ROOT), histogram,
+                    errors.get(operation).sum(), seconds);
+            write(histogram, output.resolve(operation.name().toLowerCase(Locale.ROOT) + ".hgrm"));
+        }
+        out.printf(Locale.ROOT, "%-10s %9d %8s %10.1f%n", "total", totalCount, "", totalCount / seconds);
+
+        Histogram endToEnd = probe.endToEnd().getIntervalHistogram();
+        out.printf("%nСквозное время создание -> EmailService (%d писем, не дошло: %d):%n",
+                endToEnd.getTotalCount(), probe.pendingCount());
+        if (endToEnd.getTotalCount() > 0) {
+            printRow(out, "e2e", endToEnd, 0, seconds);
+            write(endToEnd, output.resolve("end-to-end.hgrm"));
+        }
+        out.printf("%nРаспределения: %s%n", output.toAbsolutePath());
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram histogram, long errors, double seconds) {
+        out.printf(Locale.ROOT, "%-10s %9d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static void write(Histogram histogram, Path file) throws IOException {
+        try (PrintStream stream = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(stream, MICROS_PER_MILLI);
+        }
+    }
+}
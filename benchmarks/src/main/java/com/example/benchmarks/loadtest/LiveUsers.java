@@ -0,0 +1,38 @@
+package com.example.benchmarks.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// id живых пользователей, по которым идут get/update/delete.
+// Удаляемый id забирается из пула до отправки запроса, чтобы параллельные
+// операции не попадали в уже удаленного пользователя и не портили статистику ошибок
+final class LiveUsers {
+
+    private final List<Long> ids = new ArrayList<>();
+
+    synchronized void add(long id) {
+        ids.add(id);
+    }
+
+    // -1, если пул пуст
+    synchronized long random() {
+        return ids.isEmpty() ? -1 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    synchronized long takeRandom() {
+        if (ids.isEmpty()) {
+            return -1;
+        }
+        int index = ThreadLocalRandom.current().nextInt(ids.size());
+        long id = ids.get(index);
+        // swap-remove: порядок не важен, удаление за O(1)
+        ids.set(index, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+}
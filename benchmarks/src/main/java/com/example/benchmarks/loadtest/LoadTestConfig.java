@@ -0,0 +1,36 @@
+package com.example.benchmarks.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Параметры прогона из системных свойств load.* (их выставляет профиль load в pom.xml)
+record LoadTestConfig(int rate,
+                      Duration duration,
+                      Duration warmup,
+                      OperationMix mix,
+                      int seedUsers,
+                      int bcryptStrength,
+                      String codec,
+                      boolean virtualThreads,
+                      Path output) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("load.rate", 200),
+                DurationStyle.detectAndParse(System.getProperty("load.duration", "60s")),
+                DurationStyle.detectAndParse(System.getProperty("load.warmup", "15s")),
+                OperationMix.parse(System.getProperty("load.mix", "create=10,get=70,update=15,delete=5")),
+                Integer.getInteger("load.seed-users", 500),
+                Integer.getInteger("load.bcrypt-strength", 10),
+                System.getProperty("load.codec", "json"),
+                Boolean.getBoolean("load.virtual-threads"),
+                Path.of(System.getProperty("load.output", "target/loadtest")));
+    }
+
+    // интервал между плановыми стартами запросов
+    long intervalNanos() {
+        return 1_000_000_000L / rate;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.benchmarks.loadtest.OperationMix.Operation;
+import com.example.common.dto.UserEventTopics;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Нагрузочный тест: user-service и notification-service поднимаются в одном процессе
+// против встроенной Kafka (KRaft) и H2 в режиме PostgreSQL, генератор шлет в UserController
+// смесь create/get/update/delete с постоянной частотой (открытая модель: следующий запрос
+// не ждет ответа на предыдущий) и печатает p50/p99/p99.9, пропускную способность и
+// сквозное время от создания пользователя до передачи письма в EmailService.
+// Запуск: mvn verify -Pload (параметры — свойства load.* в pom.xml)
+public final class LoadTestRunner {
+
+    static final int PARTITIONS = 3;
+    private static final Duration DELIVERY_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final UserApiClient client;
+    private final DeliveryProbe probe;
+    private final LiveUsers liveUsers = new LiveUsers();
+    private final LatencyReport report = new LatencyReport();
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    private LoadTestRunner(LoadTestConfig config, UserApiClient client, DeliveryProbe probe) {
+        this.config = config;
+        this.client = client;
+        this.probe = probe;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        System.out.printf("Нагрузка: %d запросов/с, прогрев %s, замер %s, смесь %s, bcrypt %d, кодек %s, "
+                        + "виртуальные потоки: %s%n",
+                config.rate(), config.warmup(), config.duration(), config.mix(),
+                config.bcryptStrength(), config.codec(), config.virtualThreads());
+
+        EmbeddedKafkaBroker broker = newBroker();
+        DeliveryProbe probe = new DeliveryProbe();
+        try (ServiceStand stand = ServiceStand.start(broker, probe,
+                "user.password.bcrypt.strength=" + config.bcryptStrength(),
+                "user.events.codec=" + config.codec(),
+                "spring.threads.virtual.enabled=" + config.virtualThreads())) {
+            LoadTestRunner runner = new LoadTestRunner(config, new UserApiClient(stand.userServicePort()), probe);
+            runner.seed();
+            runner.run();
+        } finally {
+            broker.destroy();
+        }
+        // потоки Kafka-клиентов и пулов не всегда успевают завершиться к этому моменту
+        System.exit(0);
+    }
+
+    // топики событий создаются заранее: слушатели notification-service стартуют раньше user-service,
+    // который объявляет их через KafkaAdmin
+    static EmbeddedKafkaBroker newBroker() {
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS,
+                UserEventTopics.ALL.toArray(String[]::new));
+        broker.afterPropertiesSet();
+        return broker;
+    }
+
+    private void seed() throws InterruptedException {
+        seed(client, liveUsers, config.seedUsers(), this::nextEmail);
+    }
+
+    // Пользователи для get/update/delete. Параллельность по числу ядер —
+    // больше очередь хеширования паролей все равно не разберет
+    static void seed(UserApiClient client, LiveUsers liveUsers, int count, Supplier<String> emails)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Long>> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(executor.submit(() -> client.create(emails.get())));
+            }
+            for (Future<Long> id : ids) {
+                try {
+                    if (id.get() >= 0) {
+                        liveUsers.add(id.get());
+                    }
+                } catch (ExecutionException e) {
+                    System.err.printf("Ошибка создания пользователя при подготовке: %s%n", e.getCause());
+                }
+            }
+        }
+        System.out.printf("Подготовлено пользователей: %d из %d за %d мс%n", liveUsers.size(), count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void run() throws IOException, InterruptedException {
+        long interval = config.intervalNanos();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+
+        // Запрос стартует по расписанию, даже если предыдущие еще не ответили: задержка
+        // считается от планового времени, так что замедление сервиса видно в хвосте
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intendedStart = start + i * interval;
+                if (intendedStart >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                boolean measured = intendedStart >= measureFrom;
+                Operation operation = config.mix().next();
+                executor.submit(() -> execute(operation, intendedStart, measured));
+            }
+        }
+        Duration measured = Duration.ofNanos(System.nanoTime() - measureFrom);
+
+        long deadline = System.nanoTime() + DELIVERY_TIMEOUT.toNanos();
+        while (probe.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        report.print(System.out, measured, probe, config.output());
+    }
+
+    private void execute(Operation operation, long intendedStart, boolean measured) {
+        boolean success;
+        try {
+            success = switch (operation) {
+                case CREATE -> create(intendedStart, measured);
+                case GET -> {
+                    long id = liveUsers.random();
+                    yield id >= 0 && UserApiClient.isSuccess(client.get(id));
+                }
+                case UPDATE -> {
+                    long id = liveUsers.random();
+                    yield id >= 0 && UserApiClient.isSuccess(client.update(id));
+                }
+                case DELETE -> {
+                    long id = liveUsers.takeRandom();
+                    yield id >= 0 && UserApiClient.isSuccess(client.delete(id));
+                }
+            };
+        } catch (IOException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        if (measured) {
+            report.record(operation, intendedStart, success);
+        }
+    }
+
+    private boolean create(long intendedStart, boolean measured) throws IOException, InterruptedException {
+        String email = nextEmail();
+        if (measured) {
+            probe.expect(email, intendedStart);
+        }
+        long id = -1;
+        try {
+            id = client.create(email);
+        } finally {
+            if (id < 0) {
+                probe.forget(email);
+            }
+        }
+        if (id < 0) {
+            return false;
+        }
+        liveUsers.add(id);
+        return true;
+    }
+
+    private String nextEmail() {
+        return "load-" + emailSequence.incrementAndGet() + "@loadtest.example.com";
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.benchmarks.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Доли операций в нагрузке, формат "create=10,get=70,update=15,delete=5" (веса, не обязательно проценты)
+final class OperationMix {
+
+    enum Operation { CREATE, GET, UPDATE, DELETE }
+
+    private final Map<Operation, Integer> weights;
+    private final int total;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма весов load.mix должна быть больше нуля");
+        }
+    }
+
+    static OperationMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Некорректный элемент load.mix: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Отрицательный вес в load.mix: " + part);
+            }
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        return new OperationMix(weights);
+    }
+
+    Operation next() {
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Недостижимо: roll вне суммы весов");
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.common.dto.UserEventBinarySerializer;
+import com.example.common.dto.UserEventDto;
+import com.example.springdemo.config.UserEventProducerProfile;
+import com.example.springdemo.kafka.UserEventProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Пропускная способность UserEventProducer при разных user.events.producer.profile
+// против встроенной Kafka. Отправитель держит до load.producer.in-flight неподтвержденных событий
+// (как несколько relay с пачками outbox) и шлет следующее, как только освободилось место.
+// Прогон задается списком профиль[:сжатие], сжатие переопределяет compression.type профиля.
+// Запуск: mvn verify -Pproducer -Dload.producer.runs=default,throughput,throughput:lz4
+public final class ProducerProfileBenchmark {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private ProducerProfileBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] runs = System.getProperty("load.producer.runs", "default,throughput,throughput:lz4").split(",");
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "30s"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+        int inFlight = Integer.getInteger("load.producer.in-flight", 1000);
+        String codec = System.getProperty("load.codec", "json");
+
+        EmbeddedKafkaBroker broker = LoadTestRunner.newBroker();
+        List<String> rows = new ArrayList<>();
+        try {
+            for (String run : runs) {
+                System.out.printf("Профиль %s, кодек %s...%n", run.trim(), codec);
+                rows.add(run(broker, run.trim(), codec, inFlight, warmup, duration));
+            }
+        } finally {
+            broker.destroy();
+        }
+
+        System.out.printf("%n%-18s %10s %10s %10s %10s %12s %12s %12s%n",
+                "profile", "events/s", "p50, ms", "p99, ms", "p99.9, ms", "batch, B", "records/req", "compression");
+        rows.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static String run(EmbeddedKafkaBroker broker, String run, String codec, int inFlight,
+                              Duration warmup, Duration duration) throws InterruptedException {
+        String[] parts = run.split(":");
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        if (parts.length > 1) {
+            configs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, parts[1]);
+        }
+        configs.putAll(UserEventProducerProfile.of(parts[0]).missingFrom(configs));
+        DefaultKafkaProducerFactory<String, UserEventDto> producerFactory = new DefaultKafkaProducerFactory<>(
+                configs, new StringSerializer(), "binary".equalsIgnoreCase(codec)
+                        ? new UserEventBinarySerializer()
+                        : new JsonSerializer<UserEventDto>().noTypeInfo());
+        KafkaTemplate<String, UserEventDto> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        UserEventProducer producer = new UserEventProducer(kafkaTemplate, new SimpleMeterRegistry());
+
+        Recorder latencies = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        Semaphore window = new Semaphore(inFlight);
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long sequence = 0;
+        try {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                window.acquire();
+                long start = now;
+                producer.sendUserEvent(UserEventDto.created("producer-" + ++sequence + "@loadtest.example.com"))
+                        .whenComplete((result, error) -> {
+                            window.release();
+                            if (start >= measureFrom) {
+                                latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                                if (error != null) {
+                                    errors.increment();
+                                }
+                            }
+                        });
+            }
+            // ждем ack всех отправленных, чтобы они попали в замер
+            window.acquire(inFlight);
+            double seconds = (System.nanoTime() - measureFrom) / 1e9;
+
+            Histogram histogram = latencies.getIntervalHistogram();
+            if (errors.sum() > 0) {
+                System.out.printf("  ошибок отправки: %d%n", errors.sum());
+            }
+            Map<MetricName, ? extends Metric> metrics = kafkaTemplate.metrics();
+            return String.format(Locale.ROOT, "%-18s %10.1f %10.2f %10.2f %10.2f %12.0f %12.1f %12.2f",
+                    run, histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                    histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                    producerMetric(metrics, "batch-size-avg"),
+                    producerMetric(metrics, "records-per-request-avg"),
+                    producerMetric(metrics, "compression-rate-avg"));
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    // средние по всему прогону, включая прогрев
+    private static double producerMetric(Map<MetricName, ? extends Metric> metrics, String name) {
+        return metrics.entrySet().stream()
+                .filter(entry -> entry.getKey().group().equals("producer-metrics")
+                        && entry.getKey().name().equals(name))
+                .mapToDouble(entry -> ((Number) entry.getValue().metricValue()).doubleValue())
+                .findFirst()
+                .orElse(Double.NaN);
+    }
+}
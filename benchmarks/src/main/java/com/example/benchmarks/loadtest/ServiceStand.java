@@ -0,0 +1,69 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.notificationservice.NotificationServiceApplication;
+import com.example.springdemo.Main;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// user-service и notification-service в текущем процессе против переданного брокера.
+// Конфигурация — loadtest-*.yml, поверх нее свойства, заданные прогоном
+final class ServiceStand implements AutoCloseable {
+
+    private final ConfigurableApplicationContext notificationService;
+    private final ConfigurableApplicationContext userService;
+
+    private ServiceStand(ConfigurableApplicationContext notificationService,
+                         ConfigurableApplicationContext userService) {
+        this.notificationService = notificationService;
+        this.userService = userService;
+    }
+
+    // notification.mail.enabled=probe не включает ни LoggingEmailSender, ни SmtpEmailSender —
+    // единственным EmailSender в контексте становится DeliveryProbe
+    static ServiceStand start(EmbeddedKafkaBroker broker, DeliveryProbe probe, String... userServiceProperties) {
+        ConfigurableApplicationContext notificationService = null;
+        try {
+            notificationService = new SpringApplicationBuilder(NotificationServiceApplication.class)
+                    .properties(properties(broker, "loadtest-notification-service", userServiceProperties,
+                            "notification.mail.enabled=probe"))
+                    .initializers(context -> context.getBeanFactory().registerSingleton("deliveryProbe", probe))
+                    .run();
+            ConfigurableApplicationContext userService = new SpringApplicationBuilder(Main.class)
+                    .properties(properties(broker, "loadtest-user-service", userServiceProperties))
+                    .run();
+            return new ServiceStand(notificationService, userService);
+        } catch (RuntimeException e) {
+            if (notificationService != null) {
+                notificationService.close();
+            }
+            throw e;
+        }
+    }
+
+    int userServicePort() {
+        return ((WebServerApplicationContext) userService).getWebServer().getPort();
+    }
+
+    @Override
+    public void close() {
+        userService.close();
+        notificationService.close();
+    }
+
+    // общие для обоих сервисов свойства (например, spring.threads.virtual.enabled) прогон
+    // передает вместе со свойствами user-service: лишние ключи notification-service просто не читает
+    private static String[] properties(EmbeddedKafkaBroker broker, String configName, String[] extra,
+                                       String... own) {
+        List<String> properties = new ArrayList<>();
+        properties.add("spring.config.name=" + configName);
+        properties.add("spring.kafka.bootstrap-servers=" + broker.getBrokersAsString());
+        properties.addAll(List.of(extra));
+        properties.addAll(List.of(own));
+        return properties.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.benchmarks.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Пропускная способность user-service на платформенных и виртуальных потоках
+// (spring.threads.virtual.enabled) при 1k/10k одновременных соединений.
+// Закрытая модель: каждое соединение шлет следующий запрос сразу после ответа на предыдущий,
+// поэтому главный результат — ops/s, задержки приведены для сравнения режимов между собой.
+// Нагрузка — get/update по id, кэш пользователей выключен (user.cache.max-size=0):
+// каждый запрос блокируется на JDBC, это и есть сценарий, ради которого нужны виртуальные потоки.
+// Запуск: mvn verify -Pthreads -Dload.connections=1000,10000 -Dload.duration=30s
+public final class ThreadModelBenchmark {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private ThreadModelBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] connections = Arrays.stream(System.getProperty("load.connections", "1000,10000").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "30s"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+        int seedUsers = Integer.getInteger("load.seed-users", 200);
+        int updatePercent = Integer.getInteger("load.update-percent", 20);
+
+        EmbeddedKafkaBroker broker = LoadTestRunner.newBroker();
+        List<String> rows = new ArrayList<>();
+        try {
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                try (ServiceStand stand = ServiceStand.start(broker, new DeliveryProbe(),
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "user.cache.max-size=0",
+                        "user.password.bcrypt.strength=4")) {
+                    UserApiClient client = new UserApiClient(stand.userServicePort());
+                    LiveUsers liveUsers = new LiveUsers();
+                    AtomicLong emails = new AtomicLong();
+                    LoadTestRunner.seed(client, liveUsers, seedUsers,
+                            () -> "threads-" + virtualThreads + "-" + emails.incrementAndGet() + "@loadtest.example.com");
+                    for (int connectionCount : connections) {
+                        System.out.printf("%s потоки, %d соединений...%n", mode(virtualThreads), connectionCount);
+                        rows.add(run(client, liveUsers, connectionCount, warmup, duration, updatePercent,
+                                mode(virtualThreads)));
+                    }
+                }
+            }
+        } finally {
+            broker.destroy();
+        }
+
+        System.out.printf("%n%-10s %11s %10s %10s %10s %10s %8s%n",
+                "threads", "connections", "ops/s", "p50, ms", "p99, ms", "p99.9, ms", "errors");
+        rows.forEach(System.out::println);
+        System.exit(0);
+    }
+
+    private static String run(UserApiClient client, LiveUsers liveUsers, int connections, Duration warmup,
+                              Duration duration, int updatePercent, String mode) throws InterruptedException {
+        Recorder latencies = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        // на стороне клиента соединения всегда обслуживают виртуальные потоки — сравниваем только сервер
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                executor.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        boolean success = call(client, liveUsers.random(), updatePercent);
+                        if (now >= measureFrom) {
+                            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now));
+                            if (!success) {
+                                errors.increment();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+
+        Histogram histogram = latencies.getIntervalHistogram();
+        return String.format(Locale.ROOT, "%-10s %11d %10.1f %10.2f %10.2f %10.2f %8d",
+                mode, connections, histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                errors.sum());
+    }
+
+    private static boolean call(UserApiClient client, long id, int updatePercent) {
+        if (id < 0) {
+            return false;
+        }
+        try {
+            int status = ThreadLocalRandom.current().nextInt(100) < updatePercent
+                    ? client.update(id)
+                    : client.get(id);
+            return UserApiClient.isSuccess(status);
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String mode(boolean virtualThreads) {
+        return virtualThreads ? "virtual" : "platform";
+    }
+}
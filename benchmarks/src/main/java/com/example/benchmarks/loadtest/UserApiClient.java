@@ -0,0 +1,82 @@
+package com.example.benchmarks.loadtest;
+
+import com.example.springdemo.dto.CreateUserDto;
+import com.example.springdemo.dto.UpdateUserDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// HTTP-клиент UserController. Вызовы блокирующие — их делают виртуальные потоки генератора нагрузки
+final class UserApiClient {
+
+    private static final String JSON = "application/json";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUri;
+
+    UserApiClient(int port) {
+        this.baseUri = "http://localhost:" + port + "/api/users";
+    }
+
+    // id созданного пользователя или -1 при ошибке
+    long create(String email) throws IOException, InterruptedException {
+        CreateUserDto body = new CreateUserDto("Load", "Test", email,
+                ThreadLocalRandom.current().nextInt(18, 80), "password-" + email.hashCode());
+        HttpResponse<String> response = httpClient.send(request("")
+                        .header("Content-Type", JSON)
+                        .POST(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (!isSuccess(response.statusCode())) {
+            return -1;
+        }
+        JsonNode id = objectMapper.readTree(response.body()).get("id");
+        return id == null ? -1 : id.asLong();
+    }
+
+    int get(long id) throws IOException, InterruptedException {
+        return httpClient.send(request("/" + id).GET().build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    int update(long id) throws IOException, InterruptedException {
+        UpdateUserDto body = new UpdateUserDto("Updated", null, null, ThreadLocalRandom.current().nextInt(18, 80));
+        return httpClient.send(request("/" + id)
+                                .header("Content-Type", JSON)
+                                .PUT(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    int delete(long id) throws IOException, InterruptedException {
+        return httpClient.send(request("/" + id).DELETE().build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Accept", JSON)
+                .timeout(Duration.ofSeconds(30));
+    }
+
+    private String toJson(Object body) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(body);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.common.dto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Компактный бинарный формат UserEventDto для Kafka.
+ * <p>
+ * Раскладка версии 1:
+ * <pre>
+ * version   : 1 байт (= 1)
+ * eventType : 1 байт, стабильный код (0 — null), не ordinal
+ * flags     : 1 байт, бит 0 — есть timestamp
+ * timestamp : zigzag varint секунд + varint наносекунд (если флаг)
+ * email     : varint (длина + 1, 0 — null) + UTF-8
+ * </pre>
+ * Первый байт никогда не совпадает с '{', поэтому десериализатор отличает
+ * бинарные записи от JSON. Новые поля добавляются в конец с увеличением версии,
+ * декодер читает поля до своей версии включительно.
+ */
+public final class UserEventBinaryCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_TIMESTAMP = 1;
+
+    private UserEventBinaryCodec() {
+    }
+
+    public static byte[] encode(UserEventDto event) {
+        byte[] email = event.email() == null ? null : event.email().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + (email == null ? 0 : email.length));
+        out.write(VERSION);
+        out.write(typeCode(event.eventType()));
+        Instant timestamp = event.timestamp();
+        out.write(timestamp == null ? 0 : FLAG_TIMESTAMP);
+        if (timestamp != null) {
+            writeVarLong(out, zigZag(timestamp.getEpochSecond()));
+            writeVarLong(out, timestamp.getNano());
+        }
+        if (email == null) {
+            writeVarLong(out, 0);
+        } else {
+            writeVarLong(out, email.length + 1L);
+            out.write(email, 0, email.length);
+        }
+        return out.toByteArray();
+    }
+
+    public static UserEventDto decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        byte version = in.get();
+        // более новая версия только дописывает поля в конец: читаем поля версии 1, хвост пропускаем
+        if (version < 1) {
+            throw new IllegalArgumentException("Неподдерживаемая версия формата UserEventDto: " + version);
+        }
+        UserEventDto.EventType eventType = eventType(in.get());
+        int flags = in.get();
+        Instant timestamp = null;
+        if ((flags & FLAG_TIMESTAMP) != 0) {
+            long seconds = unZigZag(readVarLong(in));
+            timestamp = Instant.ofEpochSecond(seconds, readVarLong(in));
+        }
+        int emailLength = (int) readVarLong(in) - 1;
+        String email = null;
+        if (emailLength >= 0) {
+            email = new String(data, in.position(), emailLength, StandardCharsets.UTF_8);
+            in.position(in.position() + emailLength);
+        }
+        return new UserEventDto(eventType, email, timestamp);
+    }
+
+    // Коды фиксированы: перестановка констант в enum не должна ломать формат
+    private static int typeCode(UserEventDto.EventType type) {
+        if (type == null) {
+            return 0;
+        }
+        return switch (type) {
+            case USER_CREATED -> 1;
+            case USER_UPDATED -> 2;
+            case USER_DELETED -> 3;
+        };
+    }
+
+    private static UserEventDto.EventType eventType(int code) {
+        return switch (code) {
+            case 0 -> null;
+            case 1 -> UserEventDto.EventType.USER_CREATED;
+            case 2 -> UserEventDto.EventType.USER_UPDATED;
+            case 3 -> UserEventDto.EventType.USER_DELETED;
+            default -> throw new IllegalArgumentException("Неизвестный код типа события: " + code);
+        };
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Некорректный varint");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
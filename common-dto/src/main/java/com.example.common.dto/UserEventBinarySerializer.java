@@ -0,0 +1,12 @@
+package com.example.common.dto;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+// value-serializer для продюсера, включается вместо JsonSerializer
+public class UserEventBinarySerializer implements Serializer<UserEventDto> {
+
+    @Override
+    public byte[] serialize(String topic, UserEventDto data) {
+        return data == null ? null : UserEventBinaryCodec.encode(data);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.common.dto;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+// value-deserializer для консюмера: читает и JSON, и бинарный формат,
+// поэтому продюсер можно переключать между кодеками без остановки консюмеров
+public class UserEventDeserializer implements Deserializer<UserEventDto> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Override
+    public UserEventDto deserialize(String topic, byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            if (isJson(data)) {
+                return OBJECT_MAPPER.readValue(data, UserEventDto.class);
+            }
+            return UserEventBinaryCodec.decode(data);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Не удалось прочитать UserEventDto из топика " + topic, e);
+        }
+    }
+
+    private static boolean isJson(byte[] data) {
+        for (byte b : data) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.common.dto;
+
+import java.util.List;
+
+// Топики событий пользователей, общие для user-service (отправка, создание топиков) и notification-service.
+// У каждого типа события свой топик: поток регистраций не задерживает удаления.
+// Ключ записи — email, поэтому порядок событий одного пользователя гарантирован только внутри типа
+public final class UserEventTopics {
+
+    // прежнее имя: до разделения по типам сюда шли все события, старые записи консюмер дочитает отсюда же
+    public static final String USER_CREATED = "user-registration-topic";
+    public static final String USER_UPDATED = "user-updated-topic";
+    public static final String USER_DELETED = "user-deleted-topic";
+
+    public static final List<String> ALL = List.of(USER_CREATED, USER_UPDATED, USER_DELETED);
+
+    private UserEventTopics() {
+    }
+
+    public static String forType(UserEventDto.EventType eventType) {
+        return switch (eventType) {
+            case USER_CREATED -> USER_CREATED;
+            case USER_UPDATED -> USER_UPDATED;
+            case USER_DELETED -> USER_DELETED;
+        };
+    }
+}
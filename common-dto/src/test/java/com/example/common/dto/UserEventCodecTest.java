@@ -0,0 +1,65 @@
+package com.example.common.dto;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventCodecTest {
+
+    private final UserEventBinarySerializer serializer = new UserEventBinarySerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    @Test
+    void binary_ShouldRoundTripAllFields() {
+        UserEventDto event = new UserEventDto(UserEventDto.EventType.USER_DELETED,
+                "пользователь@example.com", Instant.parse("2024-05-01T10:15:30.123456789Z"));
+
+        byte[] bytes = serializer.serialize("topic", event);
+
+        assertEquals(UserEventBinaryCodec.VERSION, bytes[0]);
+        assertEquals(event, deserializer.deserialize("topic", bytes));
+    }
+
+    @Test
+    void binary_ShouldRoundTripNulls() {
+        UserEventDto event = new UserEventDto(null, null, null);
+
+        assertEquals(event, deserializer.deserialize("topic", serializer.serialize("topic", event)));
+    }
+
+    @Test
+    void deserializer_ShouldStillReadJson() {
+        String json = "{\"eventType\":\"USER_CREATED\",\"email\":\"a@example.com\",\"timestamp\":\"2024-05-01T10:15:30Z\"}";
+
+        UserEventDto event = deserializer.deserialize("topic", json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(new UserEventDto(UserEventDto.EventType.USER_CREATED, "a@example.com",
+                Instant.parse("2024-05-01T10:15:30Z")), event);
+    }
+
+    @Test
+    void deserializer_WithInvalidVersion_ShouldThrow() {
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("topic", new byte[]{0, 1, 0, 0}));
+    }
+
+    @Test
+    void binary_WithNewerVersion_ShouldReadKnownFieldsAndSkipTail() {
+        UserEventDto event = new UserEventDto(UserEventDto.EventType.USER_CREATED,
+                "a@example.com", Instant.parse("2024-05-01T10:15:30Z"));
+        byte[] v1 = serializer.serialize("topic", event);
+        // версия 2 с новыми полями в конце
+        byte[] v2 = Arrays.copyOf(v1, v1.length + 3);
+        v2[0] = 2;
+        v2[v1.length] = 5;
+        v2[v1.length + 1] = 'x';
+        v2[v1.length + 2] = 'y';
+
+        assertEquals(event, deserializer.deserialize("topic", v2));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    // Фабрика для пакетного режима: настройки spring.kafka.* берутся из Boot,
+    // поверх включается batch-listener, ручной коммит оффсетов и конкурентность.
+    // Конкурентность имеет смысл держать равной числу партиций топика —
+    // лишние потоки всё равно будут простаивать без назначенных партиций
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${notification.consumer.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    // Фабрика для параллельного режима: слушатель только раздает записи по KeyOrderedExecutor
+    // и подтверждает каждую из рабочего потока по мере готовности. asyncAcks разрешает подтверждения
+    // не по порядку: контейнер коммитит оффсет только до первой неподтвержденной записи
+    // и не отдает следующий poll партиции, пока не подтверждены все записи предыдущего
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${notification.consumer.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAsyncAcks(true);
+        return factory;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.notificationservice.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Потоки фоновой отправки писем. При spring.threads.virtual.enabled=true — виртуальный поток
+// на задачу (ограничение параллелизма — семафоры SMTP-пула и доменов), иначе фиксированный
+// пул платформенных потоков
+public final class WorkerExecutors {
+
+    private WorkerExecutors() {
+    }
+
+    public static ExecutorService create(boolean virtualThreads, String name, int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+        return Executors.newFixedThreadPool(platformThreads, Thread.ofPlatform().name(name + "-", 1).daemon().factory());
+    }
+}
@@ -1,20 +1,60 @@
 package com.example.notificationservice.controller;
 
+import com.example.notificationservice.dto.BatchEmailRequest;
+import com.example.notificationservice.dto.BatchProgressDto;
+import com.example.notificationservice.dto.DeadLetterReplayDto;
+import com.example.notificationservice.dto.EmailMessage;
+import com.example.notificationservice.dto.EmailPriority;
 import com.example.notificationservice.dto.EmailRequest;
+import com.example.notificationservice.dto.EmailStatusDto;
+import com.example.notificationservice.kafka.DeadLetterReplayer;
+import com.example.notificationservice.service.BatchEmailService;
+import com.example.notificationservice.service.EmailDispatcher;
 import com.example.notificationservice.service.EmailService;
+import com.example.notificationservice.service.EmailTemplate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/notifications")
 @RequiredArgsConstructor
 public class EmailController {
 
+    static final String NDJSON = "application/x-ndjson";
+
     private final EmailService emailService;
+    private final EmailDispatcher emailDispatcher;
+    private final BatchEmailService batchEmailService;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/email")
-    public ResponseEntity<String> sendEmail(@RequestBody EmailRequest request) {
+    public ResponseEntity<?> sendEmail(@RequestBody EmailRequest request,
+                                       @RequestParam(defaultValue = "false") boolean async,
+                                       @RequestParam(defaultValue = "BULK") EmailPriority priority) {
+        if (async) {
+            return accepted(emailDispatcher.submit(
+                    new EmailMessage(request.getTo(), request.getSubject(), request.getMessage()), priority));
+        }
         try {
             emailService.sendCustomEmail(request.getTo(), request.getSubject(), request.getMessage());
             return ResponseEntity.ok("Письмо успешно отправлено");
@@ -24,7 +64,11 @@ public class EmailController {
     }
 
     @PostMapping("/welcome")
-    public ResponseEntity<String> sendWelcomeEmail(@RequestParam String email) {
+    public ResponseEntity<?> sendWelcomeEmail(@RequestParam String email,
+                                              @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(emailDispatcher.submit(emailService.welcomeEmail(email), EmailPriority.TRANSACTIONAL));
+        }
         try {
             emailService.sendWelcomeEmail(email);
             return ResponseEntity.ok("Приветственное письмо отправлено");
@@ -34,7 +78,11 @@ public class EmailController {
     }
 
     @PostMapping("/goodbye")
-    public ResponseEntity<String> sendGoodbyeEmail(@RequestParam String email) {
+    public ResponseEntity<?> sendGoodbyeEmail(@RequestParam String email,
+                                              @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return accepted(emailDispatcher.submit(emailService.goodbyeEmail(email), EmailPriority.TRANSACTIONAL));
+        }
         try {
             emailService.sendGoodbyeEmail(email);
             return ResponseEntity.ok("Прощальное письмо отправлено");
@@ -42,4 +90,95 @@ public class EmailController {
             return ResponseEntity.badRequest().body("Ошибка отправки прощального письма: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Массовая рассылка: шаблон + список получателей, прогресс отдаётся потоком NDJSON по мере отправки пачек
+    @PostMapping(value = "/email/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> sendBatch(@RequestBody BatchEmailRequest request) {
+        if (request.getRecipients() == null || request.getRecipients().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        EmailTemplate template = EmailTemplate.compile(request.getSubject(), request.getMessage());
+        return streamProgress(template, request.getRecipients().iterator());
+    }
+
+    // То же для больших списков: первая строка NDJSON — шаблон (subject, message),
+    // дальше по получателю на строку ("a@example.com" или {"to": "a@example.com"}).
+    // Получатели читаются из тела по мере отправки, а не целиком в память
+    @PostMapping(value = "/email/batch", consumes = NDJSON, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> sendBatchStream(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null || header.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        BatchEmailRequest request;
+        try {
+            request = objectMapper.readValue(header, BatchEmailRequest.class);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        EmailTemplate template = EmailTemplate.compile(request.getSubject(), request.getMessage());
+        Iterator<String> recipients = reader.lines()
+                .filter(line -> !line.isBlank())
+                .map(this::parseRecipient)
+                .iterator();
+        return streamProgress(template, recipients);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<EmailStatusDto> getStatus(@PathVariable UUID id) {
+        return ResponseEntity.of(emailDispatcher.getStatus(id));
+    }
+
+    // Повторная прогонка событий, исчерпавших попытки: до max записей из DLT обратно в retry-топики
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<DeadLetterReplayDto> replayDeadLetters(@RequestParam(defaultValue = "1000") int max) {
+        if (max <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(new DeadLetterReplayDto(deadLetterReplayer.replay(max)));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamProgress(EmailTemplate template, Iterator<String> recipients) {
+        StreamingResponseBody body = out -> {
+            try {
+                batchEmailService.send(template, recipients, progress -> writeLine(out, progress));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Рассылка прервана");
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, BatchProgressDto progress) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(progress));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // невалидная строка даёт null — получатель попадёт в failedRecipients
+    private String parseRecipient(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            return node.isTextual() ? node.asText() : node.path("to").asText(null);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    // 202 + ссылка на статус: письмо принято в очередь, но ещё не отправлено
+    private ResponseEntity<EmailStatusDto> accepted(EmailStatusDto status) {
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/notifications/{id}")
+                .buildAndExpand(status.id())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.notificationservice.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchEmailRequest {
+    // в теме и тексте можно использовать {{email}} — подставится адрес получателя
+    private String subject;
+    private String message;
+    private List<String> recipients;
+}
@@ -0,0 +1,13 @@
+package com.example.notificationservice.dto;
+
+import java.util.List;
+
+// Строка прогресса в потоковом ответе рассылки; failedRecipients — только по последней пачке
+public record BatchProgressDto(
+        int processed,
+        int sent,
+        int failed,
+        List<String> failedRecipients,
+        boolean done
+) {
+}
@@ -0,0 +1,5 @@
+package com.example.notificationservice.dto;
+
+// Итог повторной прогонки DLT: сколько событий снова отправлено в цепочку повторов
+public record DeadLetterReplayDto(int replayed) {
+}
@@ -0,0 +1,4 @@
+package com.example.notificationservice.dto;
+
+public record EmailMessage(String to, String subject, String message) {
+}
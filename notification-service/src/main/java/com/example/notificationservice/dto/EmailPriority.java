@@ -0,0 +1,7 @@
+package com.example.notificationservice.dto;
+
+// Порядок констант задаёт порядок выборки из очереди: транзакционные письма раньше массовых
+public enum EmailPriority {
+    TRANSACTIONAL,
+    BULK
+}
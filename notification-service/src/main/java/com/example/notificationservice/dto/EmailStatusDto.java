@@ -0,0 +1,36 @@
+package com.example.notificationservice.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record EmailStatusDto(
+        UUID id,
+        Status status,
+        EmailPriority priority,
+        String error,
+        Instant acceptedAt,
+        Instant completedAt
+) {
+    public enum Status {
+        QUEUED,
+        SENDING,
+        SENT,
+        FAILED
+    }
+
+    public static EmailStatusDto queued(UUID id, EmailPriority priority) {
+        return new EmailStatusDto(id, Status.QUEUED, priority, null, Instant.now(), null);
+    }
+
+    public EmailStatusDto sending() {
+        return new EmailStatusDto(id, Status.SENDING, priority, null, acceptedAt, null);
+    }
+
+    public EmailStatusDto sent() {
+        return new EmailStatusDto(id, Status.SENT, priority, null, acceptedAt, Instant.now());
+    }
+
+    public EmailStatusDto failed(String error) {
+        return new EmailStatusDto(id, Status.FAILED, priority, error, acceptedAt, Instant.now());
+    }
+}
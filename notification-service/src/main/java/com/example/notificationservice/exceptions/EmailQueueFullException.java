@@ -0,0 +1,12 @@
+package com.example.notificationservice.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// очередь асинхронной отправки заполнена — письмо не принято, клиенту стоит повторить позже
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class EmailQueueFullException extends RuntimeException {
+    public EmailQueueFullException() {
+        super("Очередь отправки писем переполнена, повторите запрос позже");
+    }
+}
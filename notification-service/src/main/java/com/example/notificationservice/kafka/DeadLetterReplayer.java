@@ -0,0 +1,98 @@
+package com.example.notificationservice.kafka;
+
+import com.example.common.dto.UserEventDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+// Повторная прогонка событий из DLT: записи перекладываются во вход цепочки повторов
+// и снова проходят все уровни. Прочитанное коммитится в группе notification-dlt-replay,
+// поэтому следующий вызов продолжает с того места, где остановился предыдущий
+@Component
+@Slf4j
+public class DeadLetterReplayer {
+
+    private static final String REPLAY_GROUP = "notification-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, UserEventDto> consumerFactory;
+    private final KafkaTemplate<String, UserEventDto> kafkaTemplate;
+    private final Counter replayedCounter;
+
+    public DeadLetterReplayer(ConsumerFactory<String, UserEventDto> consumerFactory,
+                              KafkaTemplate<String, UserEventDto> kafkaTemplate,
+                              MeterRegistry meterRegistry) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.replayedCounter = Counter.builder("notification.consumer.records")
+                .description("Обработанные события по итогу")
+                .tag("outcome", "replayed")
+                .register(meterRegistry);
+    }
+
+    // не больше max записей за вызов; параллельные вызовы делили бы одни оффсеты, поэтому synchronized
+    public synchronized int replay(int max) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(max, 500));
+
+        try (Consumer<String, UserEventDto> consumer =
+                     consumerFactory.createConsumer(REPLAY_GROUP, null, null, properties)) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(UserEventsConsumer.USER_EVENTS_DLT);
+            if (partitions == null || partitions.isEmpty()) {
+                return 0;
+            }
+            consumer.assign(partitions.stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .toList());
+
+            int replayed = 0;
+            while (replayed < max) {
+                ConsumerRecords<String, UserEventDto> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    break;
+                }
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, UserEventDto> record : records) {
+                    if (replayed == max) {
+                        break;
+                    }
+                    // нечитаемые записи пропускаем: повтор их не исправит
+                    if (record.value() != null) {
+                        sends.add(kafkaTemplate.send(UserEventsConsumer.USER_EVENTS_RETRY_TOPIC,
+                                record.key(), record.value()));
+                        replayed++;
+                    }
+                    offsets.put(new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1));
+                }
+                // оффсеты двигаем только после того, как Kafka приняла переотправленные записи
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                consumer.commitSync(offsets);
+                replayedCounter.increment(sends.size());
+            }
+            log.info("Из {} переотправлено событий: {}", UserEventsConsumer.USER_EVENTS_DLT, replayed);
+            return replayed;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.notificationservice.kafka;
+
+import com.example.notificationservice.config.WorkerExecutors;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+// Задачи с разными ключами выполняются параллельно, с одним ключом — строго по очереди
+// в порядке submit. Для каждого ключа хранится только хвост цепочки: новая задача
+// запускается после завершения предыдущей (успешного или нет), пустые цепочки удаляются
+@Component
+public class KeyOrderedExecutor {
+
+    private final ExecutorService workers;
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(MeterRegistry meterRegistry,
+                              @Value("${notification.consumer.parallel.workers:32}") int workerCount,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.workers = WorkerExecutors.create(virtualThreads, "user-events", workerCount);
+        Gauge.builder("notification.consumer.parallel.keys", tails, Map::size)
+                .description("Ключи, по которым есть незавершенные задачи")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, workers)
+                // ошибка предыдущей задачи не отменяет следующую
+                : tail.handle((result, error) -> null).thenRunAsync(task, workers));
+        next.whenComplete((result, error) -> tails.remove(key, next));
+        return next;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notificationservice.kafka;
+
+import com.example.common.dto.UserEventDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Уже обработанные события для отсева повторов: Kafka доставляет at-least-once, а relay outbox
+// в user-service может отправить пачку второй раз, если упал между ack и удалением строк.
+// Ключ — (email, eventType, timestamp): timestamp ставится при записи в outbox user-service
+// и не меняется при повторной отправке, отдельный id в UserEventDto не нужен.
+// Хранилище — ограниченный по размеру и времени кэш в памяти: проверка O(1), без запроса в БД.
+// Окно ttl должно перекрывать время, за которое событие может прийти повторно.
+// Ограничение: кэш свой у каждого инстанса и пропадает при рестарте. Повтор после ребалансировки,
+// когда партиция ушла другому инстансу, или после рестарта здесь не отсеется — письмо уйдет второй раз.
+// Отсев таких повторов требует общего хранилища (Redis SETNX с TTL или таблица с уникальным ключом)
+@Component
+public class ProcessedUserEvents {
+
+    private final Cache<EventKey, Boolean> processed;
+
+    public ProcessedUserEvents(@Value("${notification.consumer.dedup.max-size:100000}") long maxSize,
+                               @Value("${notification.consumer.dedup.ttl:1h}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.processed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        Gauge.builder("notification.consumer.dedup.size", processed, Cache::estimatedSize)
+                .description("Ключей обработанных событий в окне дедупликации")
+                .register(meterRegistry);
+    }
+
+    // событие без timestamp не отличить от другого такого же — его не отсеиваем
+    public boolean contains(UserEventDto event) {
+        return event.timestamp() != null && processed.getIfPresent(EventKey.of(event)) != null;
+    }
+
+    // отмечаем только после успешной обработки: при ошибке повторная доставка должна пройти
+    public void markProcessed(UserEventDto event) {
+        if (event.timestamp() != null) {
+            processed.put(EventKey.of(event), Boolean.TRUE);
+        }
+    }
+
+    record EventKey(String email, UserEventDto.EventType eventType, Instant timestamp) {
+
+        static EventKey of(UserEventDto event) {
+            return new EventKey(event.email(), event.eventType(), event.timestamp());
+        }
+    }
+}
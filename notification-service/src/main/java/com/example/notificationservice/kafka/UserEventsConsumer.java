@@ -1,35 +1,330 @@
 package com.example.notificationservice.kafka;
 
 import com.example.common.dto.UserEventDto;
+import com.example.common.dto.UserEventTopics;
+import com.example.notificationservice.dto.EmailMessage;
 import com.example.notificationservice.service.EmailService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class UserEventsConsumer {
 
+    // вход в цепочку повторов: сюда основной слушатель перекладывает события, письма по которым не ушли.
+    // Дальше уровни USER_EVENTS_RETRY_TOPIC-tier-0, -tier-1, ... с растущей задержкой и в конце USER_EVENTS_DLT
+    static final String USER_EVENTS_RETRY_TOPIC = "user-events-retry";
+    static final String USER_EVENTS_DLT = USER_EVENTS_RETRY_TOPIC + "-dlt";
+    static final String RETRY_LISTENER_ID = "userEventsRetry";
+
     private final EmailService emailService;
+    private final ProcessedUserEvents processedEvents;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final KafkaTemplate<String, UserEventDto> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer recordProcessTimer;
+    private final Timer batchProcessTimer;
+    private final Timer parallelProcessTimer;
+    private final Counter processedCounter;
+    private final Counter failedCounter;
+    private final Counter duplicateCounter;
+    private final Counter retriedCounter;
+    private final Counter deadLetterCounter;
+    private final Counter droppedCounter;
+    // отставание по времени: от записи события продюсером до обработки, по топикам и партициям.
+    // Отставание в оффсетах (kafka.consumer.fetch.manager.records.lag) публикует сам Kafka-клиент.
+    // Топик -> таймеры по номеру партиции: на запись только get и индекс, без аллокаций ключа
+    private final Map<String, Timer[]> lagTimers = new ConcurrentHashMap<>();
 
-    @KafkaListener(topics = "user-registration-topic", groupId = "notification-group")
+    public UserEventsConsumer(EmailService emailService, ProcessedUserEvents processedEvents,
+                              KeyOrderedExecutor keyOrderedExecutor,
+                              KafkaTemplate<String, UserEventDto> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.emailService = emailService;
+        this.processedEvents = processedEvents;
+        this.keyOrderedExecutor = keyOrderedExecutor;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.recordProcessTimer = processTimer(meterRegistry, "record");
+        this.batchProcessTimer = processTimer(meterRegistry, "batch");
+        this.parallelProcessTimer = processTimer(meterRegistry, "parallel");
+        this.processedCounter = recordsCounter(meterRegistry, "processed");
+        this.failedCounter = recordsCounter(meterRegistry, "failed");
+        this.duplicateCounter = recordsCounter(meterRegistry, "duplicate");
+        this.retriedCounter = recordsCounter(meterRegistry, "retried");
+        this.deadLetterCounter = recordsCounter(meterRegistry, "dead-lettered");
+        this.droppedCounter = recordsCounter(meterRegistry, "dropped");
+    }
+
+    // Поштучный режим, используется при notification.consumer.batch.enabled=false и выключенном параллельном
+    @KafkaListener(topics = {UserEventTopics.USER_CREATED, UserEventTopics.USER_UPDATED, UserEventTopics.USER_DELETED},
+            groupId = "notification-group",
+            autoStartup = "#{!${notification.consumer.batch.enabled:true} && !${notification.consumer.parallel.enabled:false}}")
     public void consumeUserEvent(UserEventDto event) {
+        long start = System.nanoTime();
+        try {
+            handle(event);
+        } finally {
+            recordProcessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Параллельный режим (notification.consumer.parallel.enabled=true): записи одной партиции
+    // обрабатываются одновременно, по порядку — только события одного ключа (email).
+    // Пропускная способность ограничена воркерами KeyOrderedExecutor, а не числом партиций
+    @KafkaListener(topics = {UserEventTopics.USER_CREATED, UserEventTopics.USER_UPDATED, UserEventTopics.USER_DELETED},
+            groupId = "notification-group",
+            containerFactory = "parallelKafkaListenerContainerFactory",
+            autoStartup = "${notification.consumer.parallel.enabled:false}",
+            properties = "max.poll.records=${notification.consumer.parallel.max-poll-records:500}")
+    public void consumeUserEventParallel(ConsumerRecord<String, UserEventDto> record, Acknowledgment acknowledgment) {
+        UserEventDto event = record.value();
+        if (event == null) {
+            log.warn("Пустое событие {}-{}@{}, пропускаем", record.topic(), record.partition(), record.offset());
+            acknowledgment.acknowledge();
+            return;
+        }
+        lagTimer(record.topic(), record.partition()).record(Math.max(0, System.currentTimeMillis() - record.timestamp()),
+                TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        keyOrderedExecutor.submit(record.key() != null ? record.key() : event.email(), () -> handle(event))
+                .whenComplete((result, error) -> {
+                    parallelProcessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (error != null) {
+                        // не удалось даже переложить событие в retry-топик. nack с asyncAcks не поддерживается,
+                        // а без подтверждения партиция встанет на этой записи — как и поштучный режим после
+                        // исчерпания попыток, фиксируем потерю в логе и метрике и подтверждаем
+                        droppedCounter.increment();
+                        log.error("Событие {}-{}@{} не обработано и не передано в {}, пропускаем: {}",
+                                record.topic(), record.partition(), record.offset(), USER_EVENTS_RETRY_TOPIC,
+                                event, error);
+                    }
+                    acknowledgment.acknowledge();
+                });
+    }
+
+    // обработка одного события в поштучном и параллельном режимах; ошибка отправки письма
+    // не выбрасывается, событие уходит в retry-топик
+    private void handle(UserEventDto event) {
         try {
-            log.info("Получено событие из Kafka: {}", event);
+            log.debug("Получено событие из Kafka: {}", event);
 
-            if ("USER_CREATED".equals(event.eventType())) {
+            if (processedEvents.contains(event)) {
+                duplicateCounter.increment();
+                log.debug("Повторная доставка, событие уже обработано: {}", event);
+                return;
+            }
+            if (event.eventType() == UserEventDto.EventType.USER_CREATED) {
                 emailService.sendWelcomeEmail(event.email());
-            } else if ("USER_DELETED".equals(event.eventType())) {
+            } else if (event.eventType() == UserEventDto.EventType.USER_DELETED) {
                 emailService.sendGoodbyeEmail(event.email());
+            } else if (event.eventType() == UserEventDto.EventType.USER_UPDATED) {
+                log.debug("Письмо на обновление профиля не отправляется: {}", event.email());
             } else {
                 log.warn("Неизвестный тип события: {}", event.eventType());
             }
+            processedEvents.markProcessed(event);
+            processedCounter.increment();
 
         } catch (Exception e) {
-            log.error("Ошибка обработки события: {}", event, e);
+            failedCounter.increment();
+            log.error("Ошибка обработки события, отправляем в {}: {}", USER_EVENTS_RETRY_TOPIC, event, e);
+            sendToRetry(List.of(event));
+        }
+    }
+
+    // Пакетный режим: весь poll обрабатывается одним вызовом, письма уходят
+    // в EmailService одной пачкой. Ошибка отдельной записи не валит пачку,
+    // оффсеты коммитятся только после того, как пачка обработана целиком
+    @KafkaListener(topics = {UserEventTopics.USER_CREATED, UserEventTopics.USER_UPDATED, UserEventTopics.USER_DELETED},
+            groupId = "notification-group",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "#{${notification.consumer.batch.enabled:true} && !${notification.consumer.parallel.enabled:false}}",
+            properties = "max.poll.records=${notification.consumer.batch.max-poll-records:500}")
+    public void consumeUserEvents(List<ConsumerRecord<String, UserEventDto>> records, Acknowledgment acknowledgment) {
+        log.debug("Получена пачка событий из Kafka: {}", records.size());
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        List<EmailMessage> messages = new ArrayList<>(records.size());
+        // события, чьи письма ушли в messages: messages.get(i) построено из sentEvents.get(i)
+        List<UserEventDto> sentEvents = new ArrayList<>(records.size());
+        Set<UserEventDto> batchEvents = new HashSet<>();
+        List<UserEventDto> toRetry = new ArrayList<>();
+        for (ConsumerRecord<String, UserEventDto> record : records) {
+            lagTimer(record.topic(), record.partition()).record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+            UserEventDto event = record.value();
+            // повтор уже обработанного или дубль внутри этой же пачки
+            if (event != null && (processedEvents.contains(event)
+                    || event.timestamp() != null && !batchEvents.add(event))) {
+                duplicateCounter.increment();
+                continue;
+            }
+            try {
+                EmailMessage message = toEmailMessage(event);
+                if (message != null) {
+                    messages.add(message);
+                    sentEvents.add(event);
+                }
+                processedCounter.increment();
+            } catch (Exception e) {
+                failedCounter.increment();
+                log.error("Ошибка обработки события {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), record.value(), e);
+                if (event != null) {
+                    toRetry.add(event);
+                }
+            }
+        }
+
+        List<EmailMessage> failed = emailService.sendAll(messages);
+        if (!failed.isEmpty()) {
+            log.error("Не удалось отправить {} из {} писем", failed.size(), messages.size());
+        }
+        Set<EmailMessage> notSent = new HashSet<>(failed);
+        for (int i = 0; i < messages.size(); i++) {
+            if (notSent.contains(messages.get(i))) {
+                toRetry.add(sentEvents.get(i));
+            } else {
+                processedEvents.markProcessed(sentEvents.get(i));
+            }
+        }
+        // неудачи не держат партицию: повторяются в retry-топиках, а оффсеты пачки коммитятся сразу
+        sendToRetry(toRetry);
+
+        acknowledgment.acknowledge();
+        batchProcessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Повторы событий, которые не удалось обработать с первого раза. Первая попытка — сразу из
+    // USER_EVENTS_RETRY_TOPIC, дальше каждый уровень — отдельный топик с растущей задержкой
+    // (delay, delay * multiplier, ...): запись ждет своего времени, не блокируя основной топик
+    // и соседние записи. После attempts попыток событие уходит в USER_EVENTS_DLT
+    @RetryableTopic(kafkaTemplate = "kafkaTemplate",
+            attempts = "${notification.consumer.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${notification.consumer.retry.delay-ms:10000}",
+                    multiplierExpression = "${notification.consumer.retry.multiplier:6}",
+                    // без maxDelay Spring Retry ограничивает задержку своими 30 секундами
+                    maxDelayExpression = "${notification.consumer.retry.max-delay-ms:360000}"),
+            numPartitions = "${notification.consumer.retry.partitions:3}",
+            retryTopicSuffix = "-tier",
+            dltTopicSuffix = "-dlt",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE)
+    @KafkaListener(id = RETRY_LISTENER_ID, idIsGroup = false,
+            topics = USER_EVENTS_RETRY_TOPIC, groupId = "notification-retry-group")
+    public void retryUserEvent(UserEventDto event) {
+        if (processedEvents.contains(event)) {
+            duplicateCounter.increment();
+            return;
+        }
+        EmailMessage message = toEmailMessage(event);
+        if (message != null) {
+            // исключение — сигнал Spring Kafka переложить запись на следующий уровень
+            emailService.send(message);
+        }
+        processedEvents.markProcessed(event);
+        processedCounter.increment();
+    }
+
+    // событие исчерпало попытки: остается в DLT до ручного разбора или replay (DeadLetterReplayer)
+    @DltHandler
+    public void deadLetter(UserEventDto event,
+                           @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        deadLetterCounter.increment();
+        log.error("Событие не обработано после всех попыток, оставлено в {}: {} ({})", USER_EVENTS_DLT, event, error);
+    }
+
+    // в retry-топик пишем до подтверждения оффсетов: если Kafka не приняла запись,
+    // исключение вернет всю пачку (уже отправленные письма отсеет ProcessedUserEvents)
+    private void sendToRetry(List<UserEventDto> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        CompletableFuture.allOf(events.stream()
+                        .map(event -> kafkaTemplate.send(USER_EVENTS_RETRY_TOPIC, event.email(), event))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+        retriedCounter.increment(events.size());
+    }
 
+    // таймер партиции регистрируется при первой записи из нее, дальше только get
+    private Timer lagTimer(String topic, int partition) {
+        Timer[] timers = lagTimers.get(topic);
+        if (timers != null && partition < timers.length && timers[partition] != null) {
+            return timers[partition];
         }
+        return registerLagTimer(topic, partition);
+    }
+
+    // массив не меняется после публикации: новая партиция — копия с добавленным таймером
+    private synchronized Timer registerLagTimer(String topic, int partition) {
+        Timer[] timers = lagTimers.getOrDefault(topic, new Timer[0]);
+        if (partition < timers.length && timers[partition] != null) {
+            return timers[partition];
+        }
+        Timer[] grown = Arrays.copyOf(timers, Math.max(timers.length, partition + 1));
+        grown[partition] = Timer.builder("notification.consumer.lag")
+                .description("Время от записи события в Kafka до его обработки")
+                .tag("topic", topic)
+                .tag("partition", String.valueOf(partition))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        lagTimers.put(topic, grown);
+        return grown[partition];
+    }
+
+    private static Timer processTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("notification.consumer.process")
+                .description("Время обработки события (record) или пачки (batch)")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter recordsCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("notification.consumer.records")
+                .description("Обработанные события по итогу")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private EmailMessage toEmailMessage(UserEventDto event) {
+        if (event == null) {
+            log.warn("Пустое событие в пачке, пропускаем");
+            return null;
+        }
+        return switch (event.eventType()) {
+            case USER_CREATED -> emailService.welcomeEmail(event.email());
+            case USER_DELETED -> emailService.goodbyeEmail(event.email());
+            // письма на обновление профиля не шлем
+            case USER_UPDATED -> null;
+            default -> {
+                log.warn("Неизвестный тип события: {}", event.eventType());
+                yield null;
+            }
+        };
     }
-}
\ No newline at end of file
+}
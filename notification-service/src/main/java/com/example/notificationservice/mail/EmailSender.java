@@ -0,0 +1,13 @@
+package com.example.notificationservice.mail;
+
+import com.example.notificationservice.dto.EmailMessage;
+
+import java.util.List;
+
+public interface EmailSender {
+
+    void send(EmailMessage message);
+
+    // Возвращает письма, которые отправить не удалось
+    List<EmailMessage> sendAll(List<EmailMessage> messages);
+}
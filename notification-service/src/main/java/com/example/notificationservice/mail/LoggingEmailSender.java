@@ -0,0 +1,39 @@
+package com.example.notificationservice.mail;
+
+import com.example.notificationservice.dto.EmailMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Заглушка для локального запуска и тестов, когда SMTP не настроен
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "notification.mail.enabled", havingValue = "false", matchIfMissing = true)
+public class LoggingEmailSender implements EmailSender {
+
+    @Override
+    public void send(EmailMessage message) {
+        log.info("Письмо отправлено:");
+        log.info("  Кому: {}", message.to());
+        log.info("  Обьект: {}", message.subject());
+        log.info("  Сообщение: {}", message.message());
+        log.info("  Статус: Успешно отправлено");
+    }
+
+    @Override
+    public List<EmailMessage> sendAll(List<EmailMessage> messages) {
+        List<EmailMessage> failed = new ArrayList<>();
+        for (EmailMessage message : messages) {
+            try {
+                send(message);
+            } catch (Exception e) {
+                log.error("Ошибка отправки письма на {}", message.to(), e);
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.notificationservice.mail;
+
+import com.example.notificationservice.config.WorkerExecutors;
+import com.example.notificationservice.dto.EmailMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Отправка через пул постоянных SMTP-соединений: соединение переиспользуется
+// для нескольких писем подряд, пакеты раскладываются по доменам получателей
+// и отправляются параллельно с ограничением на домен. Число соединений ограничено семафором:
+// на виртуальных потоках это единственное, что держит нагрузку на SMTP-сервер.
+// Это переиспользование соединения, а не SMTP PIPELINING (RFC 2920): письма одного соединения
+// идут строго друг за другом, каждая команда MAIL/RCPT/DATA ждет ответа. SMTPTransport из
+// Jakarta Mail конвейер не умеет, а свой SMTP-клиент ради него — лишний код и лишние ошибки.
+// Экономия и так приходится на самое дорогое: connect, EHLO, STARTTLS и AUTH на каждое письмо,
+// а параллельность дают несколько соединений на домен
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "notification.mail.enabled", havingValue = "true")
+public class SmtpEmailSender implements EmailSender {
+
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final InternetAddress from;
+    private final int perDomainConcurrency;
+    private final int messagesPerConnection;
+    private final Duration timeout;
+
+    private final Semaphore connectionPermits;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    // домен -> лимит параллельных отправок. Домены приходят из адресов пользователей, поэтому кэш
+    // ограничен по размеру и вытесняет домены, к которым давно не обращались. Пока семафор кем-то
+    // занят или ожидается (users > 0), запись не вытесняется: вес 0 и бессрочная жизнь —
+    // иначе следующий запрос создал бы второй семафор для того же домена и лимит удвоился бы
+    private final Cache<String, DomainLimit> domainLimits;
+    private final ExecutorService workers;
+
+    // итог по письмам (sent/failed) считает EmailService в notification.emails{outcome};
+    // здесь только то, что видно лишь отправителю: время SMTP-обмена и судьба соединений
+    private final Timer sendTimer;
+    private final Counter openedCounter;
+    private final Counter reconnectCounter;
+
+    public SmtpEmailSender(MeterRegistry meterRegistry,
+                           @Value("${spring.mail.host:localhost}") String host,
+                           @Value("${spring.mail.port:25}") int port,
+                           @Value("${spring.mail.username:}") String username,
+                           @Value("${spring.mail.password:}") String password,
+                           @Value("${notification.mail.from:noreply@example.com}") String from,
+                           @Value("${notification.mail.pool-size:8}") int poolSize,
+                           @Value("${notification.mail.per-domain-concurrency:4}") int perDomainConcurrency,
+                           @Value("${notification.mail.messages-per-connection:100}") int messagesPerConnection,
+                           @Value("${notification.mail.timeout:10s}") Duration timeout,
+                           @Value("${notification.mail.domains.max-size:10000}") long domainsMaxSize,
+                           @Value("${notification.mail.domains.idle-ttl:10m}") Duration domainsIdleTtl,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.host = host;
+        this.port = port;
+        this.username = username.isEmpty() ? null : username;
+        this.password = password.isEmpty() ? null : password;
+        this.perDomainConcurrency = perDomainConcurrency;
+        this.messagesPerConnection = messagesPerConnection;
+        this.timeout = timeout;
+        this.connectionPermits = new Semaphore(poolSize, true);
+        this.workers = WorkerExecutors.create(virtualThreads, "smtp-sender", poolSize);
+        long idleTtlNanos = domainsIdleTtl.toNanos();
+        this.domainLimits = Caffeine.newBuilder()
+                .maximumWeight(domainsMaxSize)
+                .<String, DomainLimit>weigher((domain, limit) -> limit.users() > 0 ? 0 : 1)
+                .expireAfter(new Expiry<String, DomainLimit>() {
+                    @Override
+                    public long expireAfterCreate(String domain, DomainLimit limit, long currentTime) {
+                        return limit.users() > 0 ? Long.MAX_VALUE : idleTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String domain, DomainLimit limit, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(domain, limit, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String domain, DomainLimit limit, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        try {
+            this.from = new InternetAddress(from);
+        } catch (MessagingException e) {
+            throw new IllegalArgumentException("Некорректный адрес отправителя: " + from, e);
+        }
+
+        Properties properties = new Properties();
+        properties.put("mail.smtp.host", host);
+        properties.put("mail.smtp.port", String.valueOf(port));
+        properties.put("mail.smtp.auth", String.valueOf(this.username != null));
+        properties.put("mail.smtp.connectiontimeout", String.valueOf(timeout.toMillis()));
+        properties.put("mail.smtp.timeout", String.valueOf(timeout.toMillis()));
+        properties.put("mail.smtp.writetimeout", String.valueOf(timeout.toMillis()));
+        this.session = Session.getInstance(properties);
+
+        this.sendTimer = Timer.builder("notification.email.send")
+                .description("Время отправки одного письма по SMTP")
+                .register(meterRegistry);
+        this.openedCounter = Counter.builder("notification.email.connections.opened")
+                .description("Открытые SMTP-соединения; при переиспользовании растет медленнее числа писем")
+                .register(meterRegistry);
+        this.reconnectCounter = Counter.builder("notification.email.connections.reconnects")
+                .description("Соединения из пула, закрытые сервером и открытые заново")
+                .register(meterRegistry);
+        Gauge.builder("notification.email.connections.idle", idleConnections, BlockingDeque::size)
+                .register(meterRegistry);
+        Gauge.builder("notification.email.domains", domainLimits, Cache::estimatedSize)
+                .description("Домены получателей, для которых хранится лимит параллельных отправок")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void send(EmailMessage message) {
+        String domain = domainOf(message.to());
+        Semaphore domainPermit = enterDomain(domain);
+        PooledConnection connection = null;
+        try {
+            domainPermit.acquire();
+            try {
+                connection = borrow();
+                transmit(connection, message);
+                release(connection);
+            } finally {
+                domainPermit.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Отправка письма прервана", e);
+        } catch (MessagingException | RuntimeException e) {
+            discard(connection);
+            throw new MailSendException("Не удалось отправить письмо на " + message.to(), e);
+        } finally {
+            leaveDomain(domain);
+        }
+    }
+
+    @Override
+    public List<EmailMessage> sendAll(List<EmailMessage> messages) {
+        Map<String, List<EmailMessage>> byDomain = new LinkedHashMap<>();
+        for (EmailMessage message : messages) {
+            byDomain.computeIfAbsent(domainOf(message.to()), d -> new ArrayList<>()).add(message);
+        }
+
+        // Письма одного домена делятся на куски: каждый кусок уходит по одному
+        // соединению, куски одного домена идут параллельно в пределах лимита
+        List<Future<List<EmailMessage>>> futures = new ArrayList<>();
+        List<List<EmailMessage>> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<EmailMessage>> entry : byDomain.entrySet()) {
+            List<EmailMessage> domainMessages = entry.getValue();
+            int chunkSize = Math.min(messagesPerConnection,
+                    Math.ceilDiv(domainMessages.size(), perDomainConcurrency));
+            for (int from = 0; from < domainMessages.size(); from += chunkSize) {
+                List<EmailMessage> chunk = domainMessages.subList(from, Math.min(from + chunkSize, domainMessages.size()));
+                String domain = entry.getKey();
+                Semaphore domainPermit = enterDomain(domain);
+                try {
+                    futures.add(workers.submit(() -> deliver(domain, domainPermit, chunk)));
+                } catch (RuntimeException e) {
+                    leaveDomain(domain);
+                    throw e;
+                }
+                chunks.add(chunk);
+            }
+        }
+
+        List<EmailMessage> failed = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                failed.addAll(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.addAll(chunks.get(i));
+            } catch (ExecutionException e) {
+                log.error("Ошибка отправки пачки писем", e.getCause());
+                failed.addAll(chunks.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private List<EmailMessage> deliver(String domain, Semaphore domainPermit, List<EmailMessage> chunk) {
+        List<EmailMessage> failed = new ArrayList<>();
+        try {
+            domainPermit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leaveDomain(domain);
+            failed.addAll(chunk);
+            return failed;
+        }
+
+        PooledConnection connection = null;
+        try {
+            for (int i = 0; i < chunk.size(); i++) {
+                EmailMessage message = chunk.get(i);
+                try {
+                    if (connection == null) {
+                        connection = borrow();
+                    }
+                    transmit(connection, message);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.addAll(chunk.subList(i, chunk.size()));
+                    break;
+                } catch (MessagingException | RuntimeException e) {
+                    log.error("Ошибка отправки письма на {}", message.to(), e);
+                    failed.add(message);
+                    // Состояние SMTP-сессии после ошибки не гарантировано
+                    discard(connection);
+                    connection = null;
+                }
+            }
+        } finally {
+            if (connection != null) {
+                release(connection);
+            }
+            domainPermit.release();
+            leaveDomain(domain);
+        }
+        return failed;
+    }
+
+    private void transmit(PooledConnection connection, EmailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = toMimeMessage(message);
+        long start = System.nanoTime();
+        try {
+            connection.transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        } catch (MessagingException e) {
+            if (!connection.reused) {
+                throw e;
+            }
+            // Соединение из пула могло быть закрыто сервером по таймауту простоя
+            log.debug("Повторная отправка на {} через новое соединение", message.to(), e);
+            reconnectCounter.increment();
+            connection.reopen();
+            connection.transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        }
+        sendTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        connection.sent++;
+        connection.reused = true;
+    }
+
+    private MimeMessage toMimeMessage(EmailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = new MimeMessage(session);
+        mimeMessage.setFrom(from);
+        mimeMessage.setRecipient(Message.RecipientType.TO, new InternetAddress(message.to()));
+        mimeMessage.setSubject(message.subject(), StandardCharsets.UTF_8.name());
+        mimeMessage.setText(message.message(), StandardCharsets.UTF_8.name());
+        mimeMessage.saveChanges();
+        return mimeMessage;
+    }
+
+    private PooledConnection borrow() throws InterruptedException, MessagingException {
+        // ждем свободное соединение не дольше таймаута SMTP, а не бесконечно
+        if (!connectionPermits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new MessagingException("Нет свободного SMTP-соединения за " + timeout);
+        }
+        PooledConnection connection = idleConnections.pollFirst();
+        if (connection != null) {
+            return connection;
+        }
+        try {
+            connection = new PooledConnection();
+            connection.open();
+            return connection;
+        } catch (MessagingException | RuntimeException e) {
+            connectionPermits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        if (connection.sent >= messagesPerConnection) {
+            connection.close();
+        } else {
+            idleConnections.offerFirst(connection);
+        }
+        connectionPermits.release();
+    }
+
+    private void discard(PooledConnection connection) {
+        if (connection == null) {
+            return;
+        }
+        connection.close();
+        connectionPermits.release();
+    }
+
+    // до отправки: отмечаем домен занятым и получаем его семафор (новый, если домен вытеснен или не встречался)
+    private Semaphore enterDomain(String domain) {
+        return domainLimits.asMap().compute(domain, (d, limit) -> limit == null
+                ? new DomainLimit(new Semaphore(perDomainConcurrency), 1)
+                : new DomainLimit(limit.permits(), limit.users() + 1)).permits();
+    }
+
+    // после отправки: когда занятых не осталось, домен снова может быть вытеснен
+    private void leaveDomain(String domain) {
+        domainLimits.asMap().computeIfPresent(domain,
+                (d, limit) -> new DomainLimit(limit.permits(), limit.users() - 1));
+    }
+
+    private static String domainOf(String email) {
+        int at = email == null ? -1 : email.lastIndexOf('@');
+        return at < 0 ? "" : email.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        PooledConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    // users — сколько отправок держат или ждут permits; меняется только внутри compute по ключу
+    private record DomainLimit(Semaphore permits, int users) {
+    }
+
+    private final class PooledConnection {
+        private Transport transport;
+        private int sent;
+        private boolean reused;
+
+        void open() throws MessagingException {
+            transport = session.getTransport("smtp");
+            transport.connect(host, port, username, password);
+            openedCounter.increment();
+            sent = 0;
+            reused = false;
+        }
+
+        void reopen() throws MessagingException {
+            close();
+            open();
+        }
+
+        void close() {
+            try {
+                if (transport != null) {
+                    transport.close();
+                }
+            } catch (MessagingException e) {
+                log.debug("Ошибка закрытия SMTP-соединения", e);
+            }
+        }
+    }
+}
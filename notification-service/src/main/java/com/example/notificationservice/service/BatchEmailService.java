@@ -0,0 +1,70 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.BatchProgressDto;
+import com.example.notificationservice.dto.EmailMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Массовая рассылка: получатели читаются пачками, каждая пачка уходит
+// в EmailService целиком (параллельно по SMTP-пулу), скорость ограничена
+// общим лимитером на весь сервис
+@Service
+@Slf4j
+public class BatchEmailService {
+
+    private final EmailService emailService;
+    private final SendRateLimiter rateLimiter;
+    private final int chunkSize;
+
+    public BatchEmailService(EmailService emailService,
+                             @Value("${notification.email.batch.rate-per-second:100}") double ratePerSecond,
+                             @Value("${notification.email.batch.chunk-size:200}") int chunkSize) {
+        this.emailService = emailService;
+        this.rateLimiter = new SendRateLimiter(ratePerSecond);
+        this.chunkSize = chunkSize;
+    }
+
+    public BatchProgressDto send(EmailTemplate template, Iterator<String> recipients,
+                                 Consumer<BatchProgressDto> progress) throws InterruptedException {
+        int processed = 0;
+        int sent = 0;
+        int failed = 0;
+
+        List<EmailMessage> chunk = new ArrayList<>(chunkSize);
+        List<String> rejected = new ArrayList<>();
+        while (recipients.hasNext()) {
+            String to = recipients.next();
+            if (to == null || to.isBlank()) {
+                rejected.add(to);
+            } else {
+                chunk.add(template.render(to.trim()));
+            }
+            if (chunk.size() + rejected.size() < chunkSize && recipients.hasNext()) {
+                continue;
+            }
+
+            rateLimiter.acquire(chunk.size());
+            List<String> failedRecipients = new ArrayList<>(rejected);
+            emailService.sendAll(chunk).forEach(m -> failedRecipients.add(m.to()));
+
+            processed += chunk.size() + rejected.size();
+            failed += failedRecipients.size();
+            sent = processed - failed;
+            progress.accept(new BatchProgressDto(processed, sent, failed, failedRecipients, false));
+
+            chunk.clear();
+            rejected.clear();
+        }
+
+        log.info("Рассылка завершена: обработано {}, отправлено {}, ошибок {}", processed, sent, failed);
+        BatchProgressDto result = new BatchProgressDto(processed, sent, failed, List.of(), true);
+        progress.accept(result);
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.config.WorkerExecutors;
+import com.example.notificationservice.dto.EmailMessage;
+import com.example.notificationservice.dto.EmailPriority;
+import com.example.notificationservice.dto.EmailStatusDto;
+import com.example.notificationservice.exceptions.EmailQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Асинхронная отправка: запрос кладётся в ограниченную очередь с приоритетами,
+// HTTP-поток сразу освобождается, письма разбирают воркеры (виртуальные потоки или пул, см. WorkerExecutors)
+@Service
+@Slf4j
+public class EmailDispatcher {
+
+    private final EmailService emailService;
+    private final int workerCount;
+
+    // внутри одного приоритета — FIFO по порядковому номеру
+    private final PriorityBlockingQueue<QueuedEmail> queue = new PriorityBlockingQueue<>(64,
+            Comparator.comparing(QueuedEmail::priority).thenComparingLong(QueuedEmail::sequence));
+    private final Semaphore capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<EmailPriority, AtomicInteger> depth = new EnumMap<>(EmailPriority.class);
+    private final Cache<UUID, EmailStatusDto> statuses;
+    private final ExecutorService workers;
+
+    private final Timer waitTimer;
+    private final Counter droppedCounter;
+
+    public EmailDispatcher(EmailService emailService,
+                           MeterRegistry meterRegistry,
+                           @Value("${notification.email.async.queue-capacity:10000}") int queueCapacity,
+                           @Value("${notification.email.async.workers:8}") int workerCount,
+                           @Value("${notification.email.async.status-max-size:100000}") long statusMaxSize,
+                           @Value("${notification.email.async.status-ttl:1h}") Duration statusTtl,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.emailService = emailService;
+        this.workerCount = workerCount;
+        this.workers = WorkerExecutors.create(virtualThreads, "email-dispatcher", workerCount);
+        this.capacity = new Semaphore(queueCapacity);
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(statusMaxSize)
+                .expireAfterWrite(statusTtl)
+                .build();
+
+        this.waitTimer = Timer.builder("notification.email.queue.wait")
+                .description("Время ожидания письма в очереди до начала отправки")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("notification.email.queue.dropped")
+                .description("Письма, отклонённые из-за переполнения очереди")
+                .register(meterRegistry);
+        for (EmailPriority priority : EmailPriority.values()) {
+            AtomicInteger priorityDepth = new AtomicInteger();
+            depth.put(priority, priorityDepth);
+            Gauge.builder("notification.email.queue.depth", priorityDepth, AtomicInteger::get)
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::drain);
+        }
+    }
+
+    public EmailStatusDto submit(EmailMessage message, EmailPriority priority) {
+        if (!capacity.tryAcquire()) {
+            droppedCounter.increment();
+            log.warn("Очередь отправки переполнена, письмо на {} отклонено", message.to());
+            throw new EmailQueueFullException();
+        }
+        EmailStatusDto status = EmailStatusDto.queued(UUID.randomUUID(), priority);
+        statuses.put(status.id(), status);
+        depth.get(priority).incrementAndGet();
+        queue.add(new QueuedEmail(status.id(), message, priority, sequence.incrementAndGet(), System.nanoTime()));
+        return status;
+    }
+
+    public Optional<EmailStatusDto> getStatus(UUID id) {
+        return Optional.ofNullable(statuses.getIfPresent(id));
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedEmail email;
+            try {
+                email = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            capacity.release();
+            depth.get(email.priority()).decrementAndGet();
+            waitTimer.record(Duration.ofNanos(System.nanoTime() - email.enqueuedAt()));
+            deliver(email);
+        }
+    }
+
+    private void deliver(QueuedEmail email) {
+        statuses.asMap().computeIfPresent(email.id(), (id, status) -> status.sending());
+        try {
+            emailService.send(email.message());
+            statuses.asMap().computeIfPresent(email.id(), (id, status) -> status.sent());
+        } catch (Exception e) {
+            log.error("Ошибка асинхронной отправки письма {} на {}", email.id(), email.message().to(), e);
+            statuses.asMap().computeIfPresent(email.id(), (id, status) -> status.failed(e.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        if (!queue.isEmpty()) {
+            log.warn("Остановка сервиса: в очереди осталось {} неотправленных писем", queue.size());
+        }
+    }
+
+    private record QueuedEmail(UUID id, EmailMessage message, EmailPriority priority, long sequence, long enqueuedAt) {
+    }
+}
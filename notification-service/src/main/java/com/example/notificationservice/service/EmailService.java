@@ -1,36 +1,79 @@
 package com.example.notificationservice.service;
 
 
+import com.example.notificationservice.dto.EmailMessage;
+import com.example.notificationservice.mail.EmailSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @Slf4j
 public class EmailService {
 
+    public static final String WELCOME_SUBJECT = "Добро пожаловать!";
+
+    private final EmailSender emailSender;
+
+    // итог по письмам независимо от EmailSender (SMTP или заглушка)
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    public EmailService(EmailSender emailSender, MeterRegistry meterRegistry) {
+        this.emailSender = emailSender;
+        this.sentCounter = outcomeCounter(meterRegistry, "sent");
+        this.failedCounter = outcomeCounter(meterRegistry, "failed");
+    }
+
     public void sendWelcomeEmail(String userEmail) {
-        String subject = "Добро пожаловать!";
-        String message = "Здравствуйте! Ваш аккаунт на сайте был успешно создан.";
-        sendEmail(userEmail, subject, message);
+        send(welcomeEmail(userEmail));
     }
 
     public void sendGoodbyeEmail(String userEmail) {
+        send(goodbyeEmail(userEmail));
+    }
+
+    public void sendCustomEmail(String userEmail, String subject, String message) {
+        send(new EmailMessage(userEmail, subject, message));
+    }
+
+    public EmailMessage welcomeEmail(String userEmail) {
+        String message = "Здравствуйте! Ваш аккаунт на сайте был успешно создан.";
+        return new EmailMessage(userEmail, WELCOME_SUBJECT, message);
+    }
+
+    public EmailMessage goodbyeEmail(String userEmail) {
         String subject = "Аккаунт удален";
         String message = "Здравствуйте! Ваш аккаунт был удалён.";
-        sendEmail(userEmail, subject, message);
+        return new EmailMessage(userEmail, subject, message);
     }
 
-    public void sendCustomEmail(String userEmail, String subject, String message) {
-        sendEmail(userEmail, subject, message);
+    // Пакетная отправка: ошибка одного письма не прерывает остальные,
+    // возвращаются только те письма, которые отправить не удалось
+    public List<EmailMessage> sendAll(List<EmailMessage> messages) {
+        List<EmailMessage> failed = emailSender.sendAll(messages);
+        sentCounter.increment(messages.size() - failed.size());
+        failedCounter.increment(failed.size());
+        return failed;
     }
 
-    private void sendEmail(String to, String subject, String message) {
-        // JavaMailSender или SendGrid/Mailgun или другой сервис
+    public void send(EmailMessage message) {
+        try {
+            emailSender.send(message);
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            throw e;
+        }
+        sentCounter.increment();
+    }
 
-        log.info("Письмо отправлено:");
-        log.info("  Кому: {}", to);
-        log.info("  Обьект: {}", subject);
-        log.info("  Сообщение: {}", message);
-        log.info("  Статус: Успешно отправлено");
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("notification.emails")
+                .description("Письма, переданные в EmailSender, по итогу отправки")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
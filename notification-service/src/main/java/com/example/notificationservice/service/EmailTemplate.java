@@ -0,0 +1,41 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.EmailMessage;
+
+import java.util.regex.Pattern;
+
+// Шаблон разбирается один раз на всю рассылку, на каждого получателя
+// остаётся только склеить готовые куски с адресом
+public final class EmailTemplate {
+
+    static final String EMAIL_PLACEHOLDER = "{{email}}";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile(Pattern.quote(EMAIL_PLACEHOLDER));
+
+    private final String[] subjectParts;
+    private final String[] messageParts;
+
+    private EmailTemplate(String subject, String message) {
+        this.subjectParts = PLACEHOLDER_PATTERN.split(subject, -1);
+        this.messageParts = PLACEHOLDER_PATTERN.split(message, -1);
+    }
+
+    public static EmailTemplate compile(String subject, String message) {
+        return new EmailTemplate(subject == null ? "" : subject, message == null ? "" : message);
+    }
+
+    public EmailMessage render(String to) {
+        return new EmailMessage(to, join(subjectParts, to), join(messageParts, to));
+    }
+
+    // без плейсхолдеров возвращается одна и та же строка для всех получателей
+    private static String join(String[] parts, String value) {
+        if (parts.length == 1) {
+            return parts[0];
+        }
+        StringBuilder sb = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            sb.append(value).append(parts[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.notificationservice.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Равномерное ограничение скорости: каждая выдача сдвигает время следующей
+// на permits * interval, вызывающий поток спит до своего слота
+class SendRateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeNanos = System.nanoTime();
+
+    SendRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextFreeNanos);
+            nextFreeNanos = start + permits * intervalNanos;
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.notificationservice.controller;
 
+import com.example.notificationservice.dto.BatchEmailRequest;
 import com.example.notificationservice.dto.EmailRequest;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +11,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -75,4 +85,103 @@ class EmailControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendWelcomeEmail_Async_ShouldReturnAcceptedAndTrackStatus() throws Exception {
+        // Given
+        String testEmail = "test.async@example.com";
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/notifications/welcome")
+                        .param("email", testEmail)
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.priority").value("TRANSACTIONAL"))
+                .andReturn();
+        String id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+
+        // Then
+        await(() -> mockMvc.perform(get("/api/notifications/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SENT")));
+    }
+
+    @Test
+    void getStatus_WithUnknownId_ShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/api/notifications/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void sendBatch_WithRecipients_ShouldStreamProgress() throws Exception {
+        // Given
+        BatchEmailRequest request = new BatchEmailRequest();
+        request.setSubject("Новости");
+        request.setMessage("Здравствуйте, {{email}}!");
+        request.setRecipients(List.of("a@example.com", "b@example.com", " "));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/notifications/email/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.strip().split("\n");
+        JsonNode done = objectMapper.readTree(lines[lines.length - 1]);
+        assertTrue(done.get("done").asBoolean());
+        assertEquals(3, done.get("processed").asInt());
+        assertEquals(2, done.get("sent").asInt());
+        assertEquals(1, done.get("failed").asInt());
+    }
+
+    @Test
+    void sendBatch_WithNdjsonBody_ShouldStreamProgress() throws Exception {
+        // Given
+        String body = """
+                {"subject": "Новости", "message": "Текст"}
+                "a@example.com"
+                {"to": "b@example.com"}
+                """;
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/notifications/email/batch")
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = response.strip().split("\n");
+        JsonNode done = objectMapper.readTree(lines[lines.length - 1]);
+        assertEquals(2, done.get("sent").asInt());
+        assertEquals(0, done.get("failed").asInt());
+    }
+
+    private static void await(ThrowingRunnable assertion) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.notificationservice.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(new SimpleMeterRegistry(), 4, false);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void submit_WithSameKey_ShouldRunInSubmitOrderEvenAfterFailure() {
+        // Given
+        List<Integer> order = new CopyOnWriteArrayList<>();
+
+        // When
+        List<CompletableFuture<Void>> futures = IntStream.range(0, 50)
+                .mapToObj(i -> executor.submit("same@example.com", () -> {
+                    order.add(i);
+                    if (i == 10) {
+                        throw new IllegalStateException("ошибка задачи");
+                    }
+                }))
+                .toList();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+
+        // Then
+        assertEquals(IntStream.range(0, 50).boxed().toList(), order);
+        assertTrue(futures.get(10).isCompletedExceptionally());
+    }
+
+    @Test
+    void submit_WithDifferentKeys_ShouldRunConcurrently() throws Exception {
+        // Given - задача первого ключа ждет задачу второго: последовательно они бы не завершились
+        CountDownLatch secondStarted = new CountDownLatch(1);
+
+        // When
+        CompletableFuture<Void> first = executor.submit("first@example.com", () -> {
+            try {
+                assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Void> second = executor.submit("second@example.com", secondStarted::countDown);
+
+        // Then
+        second.get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.notificationservice.kafka;
 
 import com.example.common.dto.UserEventDto;
+import com.example.common.dto.UserEventTopics;
 import com.example.notificationservice.service.EmailService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -23,11 +37,20 @@ class UserEventsConsumerTest {
     @SpyBean
     private EmailService emailService;
 
+    @MockBean
+    private KafkaTemplate<String, UserEventDto> kafkaTemplate;
+
+    @Autowired
+    private DestinationTopicResolver destinationTopicResolver;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void consumeUserEvent_WithUserCreatedEvent_ShouldSendWelcomeEmail() {
         // Given
         UserEventDto userCreatedEvent = new UserEventDto(
-                "USER_CREATED",
+                UserEventDto.EventType.USER_CREATED,
                 "test.kafka@example.com",
                 Instant.now()
         );
@@ -44,7 +67,7 @@ class UserEventsConsumerTest {
     void consumeUserEvent_WithUserDeletedEvent_ShouldSendGoodbyeEmail() {
         // Given
         UserEventDto userDeletedEvent = new UserEventDto(
-                "USER_DELETED",
+                UserEventDto.EventType.USER_DELETED,
                 "test.kafka@example.com",
                 Instant.now()
         );
@@ -58,19 +81,166 @@ class UserEventsConsumerTest {
     }
 
     @Test
-    void consumeUserEvent_WithUnknownEventType_ShouldNotSendAnyEmail() {
+    void consumeUserEvent_WithUpdatedEvent_ShouldNotSendAnyEmail() {
         // Given
-        UserEventDto unknownEvent = new UserEventDto(
-                "UNKNOWN_EVENT",
+        UserEventDto updatedEvent = new UserEventDto(
+                UserEventDto.EventType.USER_UPDATED,
                 "test.kafka@example.com",
                 Instant.now()
         );
 
         // When
-        userEventsConsumer.consumeUserEvent(unknownEvent);
+        userEventsConsumer.consumeUserEvent(updatedEvent);
 
         // Then
         verify(emailService, never()).sendWelcomeEmail(anyString());
         verify(emailService, never()).sendGoodbyeEmail(anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void consumeUserEvents_WithBatch_ShouldSendOnceAndAcknowledge() {
+        // Given
+        List<ConsumerRecord<String, UserEventDto>> records = List.of(
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 0L, null,
+                        UserEventDto.created("first@example.com")),
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 1L, null, null),
+                new ConsumerRecord<>(UserEventTopics.USER_DELETED, 0, 2L, null,
+                        UserEventDto.deleted("second@example.com"))
+        );
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        // When
+        userEventsConsumer.consumeUserEvents(records, acknowledgment);
+
+        // Then
+        verify(emailService, times(1)).sendAll(anyList());
+        verify(emailService, times(1)).welcomeEmail("first@example.com");
+        verify(emailService, times(1)).goodbyeEmail("second@example.com");
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void consumeUserEvents_WithRedeliveredEvents_ShouldSendEachEmailOnce() {
+        // Given - то же событие дважды в пачке, затем вся пачка повторно (как после ребалансировки)
+        UserEventDto created = UserEventDto.created("redelivered@example.com");
+        List<ConsumerRecord<String, UserEventDto>> records = List.of(
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 10L, created.email(), created),
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 11L, created.email(), created));
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        // When
+        userEventsConsumer.consumeUserEvents(records, acknowledgment);
+        userEventsConsumer.consumeUserEvents(records, acknowledgment);
+        userEventsConsumer.consumeUserEvent(created);
+
+        // Then
+        verify(emailService, times(1)).welcomeEmail("redelivered@example.com");
+        verify(emailService, never()).sendWelcomeEmail("redelivered@example.com");
+        verify(acknowledgment, times(2)).acknowledge();
+    }
+
+    @Test
+    void consumeUserEvents_WhenEmailNotSent_ShouldForwardToRetryTopicAndAcknowledge() {
+        // Given
+        UserEventDto created = UserEventDto.created("retry@example.com");
+        List<ConsumerRecord<String, UserEventDto>> records = List.of(
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 20L, created.email(), created));
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        doAnswer(invocation -> invocation.getArgument(0)).when(emailService).sendAll(anyList());
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        userEventsConsumer.consumeUserEvents(records, acknowledgment);
+
+        // Then
+        verify(kafkaTemplate, times(1)).send(UserEventsConsumer.USER_EVENTS_RETRY_TOPIC, "retry@example.com", created);
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void retryUserEvent_WhenSendFails_ShouldRethrowForNextRetryTopic() {
+        // Given
+        UserEventDto deleted = UserEventDto.deleted("retry-fails@example.com");
+        doThrow(new IllegalStateException("SMTP недоступен")).when(emailService).send(any());
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> userEventsConsumer.retryUserEvent(deleted));
+        verify(emailService, times(1)).goodbyeEmail("retry-fails@example.com");
+    }
+
+    @Test
+    void consumeUserEventParallel_ShouldSendEmailAndAcknowledgeWhenDone() {
+        // Given
+        UserEventDto created = UserEventDto.created("parallel@example.com");
+        ConsumerRecord<String, UserEventDto> record =
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 30L, created.email(), created);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        // When
+        userEventsConsumer.consumeUserEventParallel(record, acknowledgment);
+
+        // Then
+        verify(acknowledgment, timeout(5000).times(1)).acknowledge();
+        verify(emailService, times(1)).sendWelcomeEmail("parallel@example.com");
+    }
+
+    @Test
+    void consumeUserEventParallel_WhenRetryTopicUnavailable_ShouldStillAcknowledge() {
+        // Given
+        UserEventDto created = UserEventDto.created("parallel-lost@example.com");
+        ConsumerRecord<String, UserEventDto> record =
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 0, 31L, created.email(), created);
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        doThrow(new IllegalStateException("SMTP недоступен")).when(emailService).sendWelcomeEmail(created.email());
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Kafka недоступна")));
+        double dropped = meterRegistry.get("notification.consumer.records").tag("outcome", "dropped").counter().count();
+
+        // When
+        userEventsConsumer.consumeUserEventParallel(record, acknowledgment);
+
+        // Then - партиция не встает на записи, потеря видна в метрике
+        verify(acknowledgment, timeout(5000).times(1)).acknowledge();
+        assertEquals(dropped + 1,
+                meterRegistry.get("notification.consumer.records").tag("outcome", "dropped").counter().count());
+    }
+
+    @Test
+    void consumeUserEvents_ShouldRecordLagPerTopicAndPartition() {
+        // Given - партиции, которых не касаются другие тесты контекста, не по порядку и в разных топиках
+        UserEventDto created = UserEventDto.created("lag@example.com");
+        UserEventDto updated = UserEventDto.updated("lag@example.com");
+        List<ConsumerRecord<String, UserEventDto>> records = List.of(
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 5, 40L, created.email(), created),
+                new ConsumerRecord<>(UserEventTopics.USER_CREATED, 3, 41L, created.email(), created),
+                new ConsumerRecord<>(UserEventTopics.USER_UPDATED, 5, 42L, updated.email(), updated));
+
+        // When
+        userEventsConsumer.consumeUserEvents(records, mock(Acknowledgment.class));
+
+        // Then
+        assertEquals(1, lagTimer(UserEventTopics.USER_CREATED, 5).count());
+        assertEquals(1, lagTimer(UserEventTopics.USER_CREATED, 3).count());
+        assertEquals(1, lagTimer(UserEventTopics.USER_UPDATED, 5).count());
+    }
+
+    private Timer lagTimer(String topic, int partition) {
+        return meterRegistry.get("notification.consumer.lag")
+                .tags("topic", topic, "partition", String.valueOf(partition))
+                .timer();
+    }
+
+    @Test
+    void retryTopics_ShouldUseExponentialDelaysUpToMaxDelay() {
+        // When & Then - 10s, 60s, 6m из application.yml; без maxDelay было бы 10s, 30s, 30s
+        assertEquals(10_000L, retryDelay("-tier-0"));
+        assertEquals(60_000L, retryDelay("-tier-1"));
+        assertEquals(360_000L, retryDelay("-tier-2"));
+    }
+
+    private long retryDelay(String suffix) {
+        return destinationTopicResolver.getDestinationTopicByName(UserEventsConsumer.RETRY_LISTENER_ID,
+                UserEventsConsumer.USER_EVENTS_RETRY_TOPIC + suffix).getDestinationDelay();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.notificationservice.mail;
+
+import com.example.notificationservice.dto.EmailMessage;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpEmailSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SmtpEmailSender sender;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        sender = new SmtpEmailSender(meterRegistry, "localhost", greenMail.getSmtp().getPort(), "", "",
+                "noreply@example.com", 4, 2, 10, Duration.ofSeconds(5), 2, Duration.ofMinutes(10), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdown();
+    }
+
+    @Test
+    void send_ShouldDeliverMessageAndReuseConnection() throws Exception {
+        // When
+        sender.send(new EmailMessage("first@example.com", "Тема", "Текст"));
+        sender.send(new EmailMessage("second@example.com", "Тема", "Текст"));
+
+        // Then
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        assertEquals("Тема", greenMail.getReceivedMessages()[0].getSubject());
+        assertEquals(1.0, meterRegistry.get("notification.email.connections.idle").gauge().value());
+        assertEquals(1.0, meterRegistry.get("notification.email.connections.opened").counter().count());
+    }
+
+    @Test
+    void sendAll_ShouldDeliverAllMessagesAcrossDomains() {
+        // Given
+        List<EmailMessage> messages = IntStream.range(0, 50)
+                .mapToObj(i -> new EmailMessage("user" + i + "@domain" + (i % 3) + ".com", "Тема " + i, "Текст"))
+                .toList();
+
+        // When
+        List<EmailMessage> failed = sender.sendAll(messages);
+
+        // Then
+        assertTrue(failed.isEmpty());
+        assertEquals(50, greenMail.getReceivedMessages().length);
+        assertEquals(50, meterRegistry.get("notification.email.send").timer().count());
+    }
+
+    @Test
+    void send_ToManyDomains_ShouldKeepDomainLimitsBounded() throws Exception {
+        // When - доменов больше, чем notification.mail.domains.max-size
+        for (int i = 0; i < 10; i++) {
+            sender.send(new EmailMessage("user@domain" + i + ".com", "Тема", "Текст"));
+        }
+
+        // Then - вытеснение в Caffeine асинхронное, ждем его
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (meterRegistry.get("notification.email.domains").gauge().value() > 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(meterRegistry.get("notification.email.domains").gauge().value() <= 2);
+        assertEquals(10, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void send_WhenServerUnavailable_ShouldThrow() {
+        // Given
+        greenMail.stop();
+
+        // When & Then
+        assertThrows(MailSendException.class,
+                () -> sender.send(new EmailMessage("user@example.com", "Тема", "Текст")));
+        assertEquals(0.0, meterRegistry.get("notification.email.connections.opened").counter().count());
+        greenMail.start();
+    }
+}
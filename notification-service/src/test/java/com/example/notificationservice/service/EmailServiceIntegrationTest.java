@@ -1,12 +1,18 @@
 package com.example.notificationservice.service;
 
+import com.example.notificationservice.dto.EmailMessage;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -16,6 +22,9 @@ class EmailServiceIntegrationTest {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void sendWelcomeEmail_ShouldNotThrowException() {
         // Given
@@ -56,4 +65,21 @@ class EmailServiceIntegrationTest {
 
         log.info("Кастомная почта отправлена: {}", testEmail);
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendAll_ShouldCountSentEmails() {
+        // Given
+        double before = meterRegistry.get("notification.emails").tag("outcome", "sent").counter().count();
+        List<EmailMessage> messages = List.of(
+                emailService.welcomeEmail("test.metrics.1@example.com"),
+                emailService.welcomeEmail("test.metrics.2@example.com"));
+
+        // When
+        List<EmailMessage> failed = emailService.sendAll(messages);
+
+        // Then
+        assertTrue(failed.isEmpty());
+        assertEquals(before + 2,
+                meterRegistry.get("notification.emails").tag("outcome", "sent").counter().count());
+    }
+}
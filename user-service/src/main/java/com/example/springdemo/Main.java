@@ -3,9 +3,11 @@ package com.example.springdemo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories
+@EnableScheduling // фоновый relay outbox -> Kafka
 public class Main {
     public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
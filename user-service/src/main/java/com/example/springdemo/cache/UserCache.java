@@ -0,0 +1,100 @@
+package com.example.springdemo.cache;
+
+import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.mapper.UserMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+//------------------read-through кэш пользователей в памяти процесса-----------------
+// два индекса: id -> dto и lower(email) -> id, сам dto хранится один раз в byId
+// вытеснение по размеру и по TTL, hit/miss/eviction через recordStats уходят в метрики cache.* (users.byId, users.byEmail)
+@Component
+@Slf4j
+public class UserCache {
+
+    private final Cache<Long, UserResponseDto> byId;
+    private final Cache<String, Long> byEmail;
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${user.cache.max-size:100000}") long maxSize,
+                     @Value("${user.cache.ttl:10m}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "users.byEmail");
+        log.info("Кэш пользователей: maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    // при промахе идем в loader (БД), исключение из loader (UserNotFoundException) пролетает наружу и ничего не кэшируется
+    public UserResponseDto getById(Long id, Function<Long, UserResponseDto> loader) {
+        UserResponseDto dto = byId.get(id, loader);
+        indexEmail(dto);
+        return dto;
+    }
+
+    public UserResponseDto getByEmail(String email, Supplier<UserResponseDto> loader) {
+        Long id = byEmail.getIfPresent(normalize(email));
+        if (id != null) {
+            UserResponseDto cached = byId.getIfPresent(id);
+            // email мог поменяться после того как попал в индекс — тогда это промах
+            if (cached != null && cached.getEmail() != null && cached.getEmail().equalsIgnoreCase(email)) {
+                return cached;
+            }
+        }
+        UserResponseDto dto = loader.get();
+        put(dto);
+        return dto;
+    }
+
+    public void put(UserResponseDto dto) {
+        if (dto == null || dto.getId() == null) {
+            return;
+        }
+        byId.put(dto.getId(), dto);
+        indexEmail(dto);
+    }
+
+    // вызывается из updateUser/deleteUserById и при получении инвалидации от других инстансов
+    public void invalidate(Long id, String... emails) {
+        if (id != null) {
+            byId.invalidate(id);
+        }
+        for (String email : emails) {
+            if (email != null) {
+                byEmail.invalidate(normalize(email));
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byEmail.invalidateAll();
+    }
+
+    private void indexEmail(UserResponseDto dto) {
+        if (dto != null && dto.getEmail() != null && dto.getId() != null) {
+            byEmail.put(normalize(dto.getEmail()), dto.getId());
+        }
+    }
+
+    private static String normalize(String email) {
+        return UserMapper.normalizeEmail(email);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.springdemo.cache;
+
+import java.util.List;
+
+// сообщение об инвалидации для других инстансов user-service
+// emails — и старый и новый адрес, если email поменялся в updateUser
+public record UserCacheInvalidation(Long id, List<String> emails) {
+}
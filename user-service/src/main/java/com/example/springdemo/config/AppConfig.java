@@ -1,13 +1,24 @@
 package com.example.springdemo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfig {
+    // strength задается явно или подбирается при старте под целевую задержку хеша
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(
+            @Value("${user.password.bcrypt.strength:10}") int strength,
+            @Value("${user.password.bcrypt.auto-calibrate:false}") boolean autoCalibrate,
+            @Value("${user.password.bcrypt.max-strength:16}") int maxStrength,
+            @Value("${user.password.bcrypt.target-latency:250ms}") Duration targetLatency) {
+        int effectiveStrength = autoCalibrate
+                ? BCryptStrengthCalibrator.calibrate(strength, maxStrength, targetLatency)
+                : strength;
+        return new BCryptPasswordEncoder(effectiveStrength);
     }
 }
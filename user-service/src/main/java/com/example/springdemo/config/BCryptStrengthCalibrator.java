@@ -0,0 +1,37 @@
+package com.example.springdemo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+// подбирает cost factor bcrypt под железо: каждый +1 к strength удваивает время хеширования,
+// поднимаемся от минимума пока следующий шаг еще укладывается в целевую задержку
+@Slf4j
+final class BCryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    static int calibrate(int minStrength, int maxStrength, Duration targetLatency) {
+        int strength = minStrength;
+        long nanos = measure(strength);
+        while (strength < maxStrength && nanos * 2 <= targetLatency.toNanos()) {
+            strength++;
+            nanos = measure(strength);
+        }
+        log.info("bcrypt strength {} (~{} мс на хеш, цель {} мс)",
+                strength, nanos / 1_000_000, targetLatency.toMillis());
+        return strength;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode(SAMPLE_PASSWORD); // прогрев JIT
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        return System.nanoTime() - start;
+    }
+}
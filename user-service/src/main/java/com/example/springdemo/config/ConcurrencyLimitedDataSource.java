@@ -0,0 +1,118 @@
+package com.example.springdemo.config;
+
+import com.example.springdemo.exceptions.DatabaseOverloadedException;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Семафор перед пулом соединений. На виртуальных потоках число одновременных запросов
+// ничем не ограничено, и тысячи потоков встают в очередь Hikari до его connection-timeout.
+// Здесь ждут не дольше acquire-timeout, дальше — DatabaseOverloadedException (503).
+// Разрешение возвращается при close() соединения, т.е. когда оно вернулось в пул
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public ConcurrencyLimitedDataSource(DataSource target, int maxConcurrency, Duration acquireTimeout) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return guarded(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return guarded(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new DatabaseOverloadedException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseOverloadedException();
+        }
+    }
+
+    private Connection guarded(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ReleasingHandler(connection));
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+
+    // повторный close() не должен вернуть разрешение второй раз
+    private final class ReleasingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "close" -> {
+                    close();
+                    yield null;
+                }
+                default -> delegate(method, args);
+            };
+        }
+
+        private void close() throws SQLException {
+            try {
+                target.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.springdemo.config;
+
+import com.example.common.dto.UserEventBinarySerializer;
+import com.example.common.dto.UserEventDto;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    // user.events.codec=binary: UserEventDto уходит в компактном бинарном формате,
+    // остальные сообщения (инвалидации кэша) — по-прежнему JSON.
+    // notification-service читает оба формата, так что переключать можно в любой момент
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer userEventCodecCustomizer(
+            @Value("${user.events.codec:json}") String codec) {
+        return producerFactory -> {
+            if (!"binary".equalsIgnoreCase(codec)) {
+                return;
+            }
+            Map<Class<?>, Serializer<?>> delegates = new LinkedHashMap<>();
+            delegates.put(UserEventDto.class, new UserEventBinarySerializer());
+            delegates.put(Object.class, new JsonSerializer<>().noTypeInfo());
+            setValueSerializer(producerFactory, new DelegatingByTypeSerializer(delegates, true));
+        };
+    }
+
+    // user.events.producer.profile=throughput: linger, крупные пачки, zstd и идемпотентность
+    // (см. UserEventProducerProfile). Действует на весь продюсер, включая инвалидации кэша
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer userEventProducerProfileCustomizer(
+            @Value("${user.events.producer.profile:default}") String profile) {
+        UserEventProducerProfile producerProfile = UserEventProducerProfile.of(profile);
+        return producerFactory -> producerFactory.updateConfigs(
+                producerProfile.missingFrom(producerFactory.getConfigurationProperties()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void setValueSerializer(DefaultKafkaProducerFactory<?, ?> producerFactory, Serializer<?> serializer) {
+        ((DefaultKafkaProducerFactory) producerFactory).setValueSerializer(serializer);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.springdemo.config;
+
+import com.example.common.dto.UserEventTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    // Топики событий создает KafkaAdmin при старте, а не автосоздание брокера с одной партицией.
+    // У существующего топика число партиций только растет (при этом меняется партиция для части email),
+    // retention выравнивается при spring.kafka.admin.modify-topic-configs=true.
+    // Партиции ограничивают параллельность консюмеров notification-service (notification.consumer.concurrency)
+    @Bean
+    public KafkaAdmin.NewTopics userEventTopics(
+            @Value("${user.events.topic.partitions:3}") int partitions,
+            @Value("${user.events.topic.replication-factor:1}") int replicationFactor,
+            @Value("${user.events.topic.retention:7d}") Duration retention) {
+        return new KafkaAdmin.NewTopics(UserEventTopics.ALL.stream()
+                .map(name -> TopicBuilder.name(name)
+                        .partitions(partitions)
+                        .replicas(replicationFactor)
+                        .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(retention.toMillis()))
+                        .build())
+                .toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.springdemo.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Наборы настроек продюсера событий (user.events.producer.profile). Профиль только дополняет
+// конфигурацию: значения, явно заданные в spring.kafka.producer.*, он не перетирает
+public enum UserEventProducerProfile {
+
+    // настройки клиента Kafka по умолчанию: запрос уходит сразу, без ожидания соседей и без сжатия
+    DEFAULT(Map.of()),
+
+    // продюсер копит записи партиции до linger.ms или batch.size и сжимает пачку целиком.
+    // Идемпотентность при max.in.flight <= 5 сохраняет порядок событий одного email и при повторах
+    THROUGHPUT(Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 128 * 1024,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5));
+
+    private final Map<String, Object> configs;
+
+    UserEventProducerProfile(Map<String, Object> configs) {
+        this.configs = configs;
+    }
+
+    public static UserEventProducerProfile of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    // настройки профиля, которых еще нет в current
+    public Map<String, Object> missingFrom(Map<String, Object> current) {
+        Map<String, Object> missing = new HashMap<>(configs);
+        missing.keySet().removeAll(current.keySet());
+        return missing;
+    }
+}
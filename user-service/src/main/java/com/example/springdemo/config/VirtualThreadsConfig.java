@@ -0,0 +1,62 @@
+package com.example.springdemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Режим виртуальных потоков (spring.threads.virtual.enabled=true): Boot сам переводит на них
+// Tomcat, контейнеры @KafkaListener и @Scheduled. Лимит потоков при этом пропадает,
+// поэтому пул соединений закрывается семафором (см. ConcurrencyLimitedDataSource)
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadsConfig {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor dataSourceConcurrencyLimit(Environment environment,
+                                                               ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+                int limit = environment.getProperty("user.db.limit.max-concurrency", Integer.class,
+                        poolSize(dataSource));
+                Duration acquireTimeout = environment.getProperty("user.db.limit.acquire-timeout",
+                        Duration.class, Duration.ofSeconds(2));
+                ConcurrencyLimitedDataSource limited =
+                        new ConcurrencyLimitedDataSource(dataSource, limit, acquireTimeout);
+                meterRegistry.ifAvailable(registry ->
+                        Gauge.builder("user.db.limit.available", limited,
+                                        ConcurrencyLimitedDataSource::availablePermits)
+                                .description("Свободные разрешения на соединение с БД")
+                                .register(registry));
+                log.info("Доступ к БД ограничен: {} соединений, ожидание не дольше {}", limit, acquireTimeout);
+                return limited;
+            }
+        };
+    }
+
+    // по умолчанию — столько, сколько соединений в пуле; до старта пула Hikari
+    // отдает -1, если maximum-pool-size не задан явно, тогда берем его умолчание
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0) {
+            return hikari.getMaximumPoolSize();
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.springdemo.controller;
 import com.example.springdemo.dto.UpdateUserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -8,14 +9,36 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.example.springdemo.dto.UserResponseDto;
 import com.example.springdemo.dto.CreateUserDto;
+import com.example.springdemo.dto.BulkImportResultDto;
+import com.example.springdemo.mapper.UserLinks;
+import com.example.springdemo.service.UserImportParser;
+import com.example.springdemo.service.UserImportRow;
+import com.example.springdemo.service.UserImportService;
 import com.example.springdemo.service.UserService;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static com.example.springdemo.controller.UserETags.expectedVersion;
+import static com.example.springdemo.controller.UserETags.notModified;
+import static com.example.springdemo.controller.UserETags.withETag;
 
 
 @RestController // класс обрабатывает HTTP и возвращает JSON
@@ -28,9 +51,23 @@ import java.util.List;
 
 
 public class UserController {
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // клиент может хранить ответ, но перед использованием обязан сверить ETag (If-None-Match)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private final UserService userService;
 
+    private final UserImportService userImportService;
+
+    private final UserImportParser userImportParser;
+
+    private final ObjectMapper objectMapper;
+
+    private final UserLinks userLinks;
+
     // POST /api/users — регистрация (201 Created)
     @Operation(summary = "Регистрация пользователя",
     description = "Создает нового пользователя в системе",
@@ -38,45 +75,129 @@ public class UserController {
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED) // явный статус 201 для регистраци
-    public UserResponseDto createUser(@Parameter(description = "регистрация пользователя")
+    public ResponseEntity<UserResponseDto> createUser(@Parameter(description = "регистрация пользователя")
                                         @Valid @RequestBody CreateUserDto createDto) {
-        return userService.createUser(createDto);
+        UserResponseDto user = userService.createUser(createDto);
+        return withETag(ResponseEntity.status(HttpStatus.CREATED), user)
+                .body(userLinks.forCurrentRequest().apply(user));
+    }
+
+    // POST /api/users/bulk — массовый импорт, JSON-массив CreateUserDto
+    @Operation(summary = "Массовый импорт пользователей (JSON-массив)",
+            description = "Возвращает отчет по каждой строке: CREATED, DUPLICATE, INVALID или FAILED")
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResultDto importUsers(@RequestBody List<CreateUserDto> users) {
+        return userImportService.importUsers(users);
     }
 
-// GET /api/users — список всех
+    // POST /api/users/bulk с телом NDJSON или CSV — тело читается потоком, а не целиком в память
+    @Operation(summary = "Массовый импорт пользователей потоком (NDJSON или CSV)",
+            description = "CSV: первая строка заголовок name,lastName,email,age,password")
+    @PostMapping(value = "/bulk", consumes = {NDJSON, CSV})
+    public BulkImportResultDto importUsersStream(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                 InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Stream<UserImportRow> rows = contentType.isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? userImportParser.parseCsv(reader)
+                : userImportParser.parseNdjson(reader);
+        return userImportService.importUsers(rows);
+    }
+
+// GET /api/users?limit=50&after=123 — страница активных пользователей (keyset по id)
+// курсор на следующую страницу отдаем в заголовках X-Next-Cursor и Link rel="next"
 @GetMapping
-@Operation(summary = "Получить всех пользователей")
-public ResponseEntity<List<UserResponseDto>> getAllUsers() {
-    List<UserResponseDto> userEntities = userService.getAllUsers();
-    return ResponseEntity.ok(userEntities);
+@Operation(summary = "Получить всех пользователей",
+        description = "Постраничная выдача по курсору: after = id последнего пользователя с предыдущей страницы")
+public ResponseEntity<List<UserResponseDto>> getAllUsers(
+        @Parameter(description = "id последнего пользователя предыдущей страницы")
+        @RequestParam(value = "after", required = false) Long after,
+        @Parameter(description = "размер страницы (максимум " + UserService.MAX_PAGE_SIZE + ")")
+        @RequestParam(value = "limit", defaultValue = "" + UserService.DEFAULT_PAGE_SIZE) int limit) {
+    UnaryOperator<UserResponseDto> representation = userLinks.forCurrentRequest();
+    List<UserResponseDto> userEntities = userService.getAllUsers(after, limit).stream()
+            .map(representation)
+            .toList();
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    // полная страница — возможно есть продолжение
+    if (!userEntities.isEmpty() && userEntities.size() >= UserService.clampPageSize(limit)) {
+        Long nextCursor = userEntities.get(userEntities.size() - 1).getId();
+        String nextLink = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", nextCursor)
+                .toUriString();
+        response.header(NEXT_CURSOR_HEADER, String.valueOf(nextCursor))
+                .header(HttpHeaders.LINK, "<" + nextLink + ">; rel=\"next\"");
+    }
+    return response.body(userEntities);
+}
+
+// GET /api/users c Accept: application/x-ndjson — все активные пользователи потоком, по одному JSON в строке
+// память не зависит от размера таблицы: сервис читает страницами, мы сразу пишем в ответ
+@GetMapping(produces = NDJSON)
+@Operation(summary = "Выгрузить всех пользователей потоком (NDJSON)")
+public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+    // шаблоны ссылок берем здесь: тело пишется вне потока запроса
+    UnaryOperator<UserResponseDto> representation = userLinks.forCurrentRequest();
+    StreamingResponseBody body = out -> {
+        try (Stream<UserResponseDto> users = userService.streamAllUsers()) {
+            Iterator<UserResponseDto> it = users.iterator();
+            while (it.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(representation.apply(it.next())));
+                out.write('\n');
+            }
+            out.flush();
+        }
+    };
+    return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .body(body);
 }
 
 // GET /api/users/{id} - получить по id
     @Operation(summary = "Получить пользователя по ID")
     @GetMapping("/{id}")
     public ResponseEntity<UserResponseDto> getUser(@Parameter(description = "ID пользователя", example = "1")
-                                                   @PathVariable("id") Long id) {
-        UserResponseDto user = userService.getUserById(id);
-        return ResponseEntity.ok(user);
+                                                   @PathVariable("id") Long id,
+                                                   @Parameter(description = "ETag из предыдущего ответа")
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                   String ifNoneMatch) {
+        return conditionalGet(userService.getUserById(id), ifNoneMatch);
     }
 
 // GET /api/users/by-email?email=...
     @Operation(summary = "Получить пользователя по email")
     @GetMapping("/by-email")
     public ResponseEntity<UserResponseDto> getByEmail(@Parameter(description = "email пользователя")
-                                            @RequestParam("email") String email) {
-        UserResponseDto user = userService.getUserByEmail(email);
-        return ResponseEntity.ok(user);
+                                            @RequestParam("email") String email,
+                                            @Parameter(description = "ETag из предыдущего ответа")
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                            String ifNoneMatch) {
+        return conditionalGet(userService.getUserByEmail(email), ifNoneMatch);
+        }
+
+    // пользователь приходит из кэша или из проекции (без password), версия в нем уже есть.
+    // Если у клиента та же версия — 304 без тела: ссылки не строим, JSON не сериализуем
+    private ResponseEntity<UserResponseDto> conditionalGet(UserResponseDto user, String ifNoneMatch) {
+        if (notModified(ifNoneMatch, user)) {
+            return withETag(ResponseEntity.status(HttpStatus.NOT_MODIFIED), user).cacheControl(REVALIDATE).build();
         }
+        return withETag(ResponseEntity.ok(), user)
+                .cacheControl(REVALIDATE)
+                .body(userLinks.forCurrentRequest().apply(user));
+    }
 
     // UPDATE /api/users/{id} - обновить
+    // If-Match: ETag из GET — обновить только если с тех пор никто не менял пользователя, иначе 412
     @PutMapping("/{id}")
     @Operation(summary = "Обновить пользователя по ID")
     public ResponseEntity<UserResponseDto> updateUser(@Parameter(description = "Обновить по ID")
                                                 @PathVariable("id") Long id,
-                                                      @RequestBody UpdateUserDto uptadeDto) {
-        UserResponseDto updatedUser = userService.updateUser(id, uptadeDto);
-        return ResponseEntity.ok(updatedUser);
+                                                      @RequestBody UpdateUserDto uptadeDto,
+                                                      @Parameter(description = "ETag пользователя из GET/PUT")
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                      String ifMatch) {
+        UserResponseDto updatedUser = userService.updateUser(id, uptadeDto, expectedVersion(id, ifMatch));
+        return withETag(ResponseEntity.ok(), updatedUser).body(userLinks.forCurrentRequest().apply(updatedUser));
     }
 
     // DELETE /api/users/{id} — удалить (204 No Content)
@@ -0,0 +1,73 @@
+package com.example.springdemo.controller;
+
+import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.exceptions.UserVersionMismatchException;
+import com.example.springdemo.mapper.UserLinks;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+// ETag пользователя — версия строки (User.version), сильный: "3" для HAL со ссылками,
+// "3-no-links" для application/vnd.users.no-links+json — байты у представлений разные,
+// поэтому и теги разные, а ответ помечается Vary: Accept.
+// If-Match (PUT) и If-None-Match (GET) сравниваются с ней без чтения сущности:
+// версия уже лежит в UserResponseDto из кэша или проекции
+final class UserETags {
+
+    private static final String NO_LINKS_SUFFIX = "-no-links";
+
+    private UserETags() {
+    }
+
+    static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder response, UserResponseDto user) {
+        response.varyBy(HttpHeaders.ACCEPT);
+        return user.getVersion() != null ? response.eTag(tag(user.getVersion())) : response;
+    }
+
+    // тег представления, которое получит текущий запрос
+    private static String tag(long version) {
+        return UserLinks.acceptsNoLinks() ? version + NO_LINKS_SUFFIX : String.valueOf(version);
+    }
+
+    // If-Match: "3" или "3-no-links" -> 3 (условие на версию, а не на представление);
+    // без заголовка или * -> null, обновление без проверки версии.
+    // Слабый, нечисловой или список из нескольких ETag нашей версией быть не может -> 412
+    static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<ETag> tags = ETag.parse(ifMatch);
+        if (tags.size() == 1 && tags.get(0).isWildcard()) {
+            return null;
+        }
+        if (tags.size() != 1 || tags.get(0).weak()) {
+            throw new UserVersionMismatchException(id);
+        }
+        String tag = tags.get(0).tag();
+        if (tag.endsWith(NO_LINKS_SUFFIX)) {
+            tag = tag.substring(0, tag.length() - NO_LINKS_SUFFIX.length());
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new UserVersionMismatchException(id);
+        }
+    }
+
+    // If-None-Match: совпадение с любым ETag из списка или * -> у клиента актуальная версия
+    // того же представления. Для GET сравнение слабое (RFC 9110), W/"3" тоже совпадает с "3"
+    static boolean notModified(String ifNoneMatch, UserResponseDto user) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || user.getVersion() == null) {
+            return false;
+        }
+        String current = tag(user.getVersion());
+        for (ETag tag : ETag.parse(ifNoneMatch)) {
+            if (tag.isWildcard() || tag.tag().equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.springdemo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Отчет о массовом импорте пользователей")
+public record BulkImportResultDto(
+        @Schema(description = "Всего строк", example = "100000")
+        int total,
+
+        @Schema(description = "Создано пользователей", example = "99950")
+        int created,
+
+        @Schema(description = "Не создано (дубликаты, ошибки валидации и записи)", example = "50")
+        int failed,
+
+        @Schema(description = "Результат по каждой строке")
+        List<BulkImportRowResultDto> rows
+) {}
@@ -0,0 +1,28 @@
+package com.example.springdemo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// результат по одной строке импорта
+public record BulkImportRowResultDto(
+        @Schema(description = "Номер строки во входных данных (с 1)", example = "1")
+        int row,
+
+        @Schema(description = "Email из строки", example = "artur@mail.ru")
+        String email,
+
+        @Schema(description = "Итог обработки строки", example = "CREATED")
+        Status status,
+
+        @Schema(description = "ID созданного пользователя", example = "1")
+        Long id,
+
+        @Schema(description = "Причина отказа", example = "Email уже используется")
+        String error
+) {
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        FAILED
+    }
+}
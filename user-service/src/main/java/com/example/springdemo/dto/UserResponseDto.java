@@ -1,6 +1,9 @@
 package com.example.springdemo.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.springframework.hateoas.Links;
 import org.springframework.hateoas.RepresentationModel;
 
 //отдаем клиенту для ответа
@@ -21,6 +24,10 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
     @Schema(description = "Возраст", example = "25", minimum = "18", maximum = "120")
     private Integer age;
 
+    // версия строки для ETag/If-Match, в теле ответа не отдаем
+    @JsonIgnore
+    private Long version;
+
     // Конструкторы
     public UserResponseDto() {}
 
@@ -47,4 +54,12 @@ public class UserResponseDto extends RepresentationModel<UserResponseDto> {
 
     public Integer getAge() { return age; }
     public void setAge(Integer age) { this.age = age; }
-}
\ No newline at end of file
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    // в режиме без ссылок (Accept: application/vnd.users.no-links+json) пустой links не пишем
+    @Override
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Links getLinks() { return super.getLinks(); }
+}
@@ -0,0 +1,50 @@
+package com.example.springdemo.entity;
+
+import com.example.common.dto.UserEventDto;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// строка outbox: пишется в той же транзакции что и users, потом фоновый relay отправляет ее в Kafka и удаляет
+// пока строка есть в таблице — событие не потеряется даже если сервис упал между коммитом и отправкой
+@Entity
+@Table(name = "user_event_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_event_outbox_seq")
+    @SequenceGenerator(name = "user_event_outbox_seq", sequenceName = "user_event_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private UserEventDto.EventType eventType;
+
+    @Column(nullable = false, length = 254)
+    private String email;
+
+    // время события, а не отправки: при повторной доставке timestamp не меняется
+    @Column(nullable = false)
+    private Instant occurredAt;
+
+    // до какого момента строку отправляет какой-то relay; null — свободна
+    private Instant claimedUntil;
+
+    public static OutboxEvent of(UserEventDto event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setEventType(event.eventType());
+        outboxEvent.setEmail(event.email());
+        outboxEvent.setOccurredAt(event.timestamp());
+        return outboxEvent;
+    }
+
+    public UserEventDto toEvent() {
+        return new UserEventDto(eventType, email, occurredAt);
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -23,17 +24,21 @@ import java.time.Instant;
                 @Index(name = "idx_users_email", columnList = "email", unique=true)
         }
 ) // index на таблице email позволяет искать по дереву быстрее O(log n), а не O(n), также добавил уникальность
+// регистронезависимую уникальность держит idx_users_email_lower (lower(email)) из data-postgresql.sql
 @Getter //геттеры и сеттеры через ломбук чтобы вручную не прописывать
 @Setter
 @NoArgsConstructor // конструктор без аргументов (нужен Hibernate для инициализации)
 @AllArgsConstructor // конструктор со всеми аргументами
 @Builder //удобная аннотация для тестов
+@DynamicUpdate // UPDATE только по измененным колонкам, а не всей строкой (password и created_at не переписываем)
 
 
 public class User {
     @Id // аннотация говорит hibernate это первичный ключ
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // говорит: БД будет генерировать айди автоматом
-    // автоинкрементная стратегия POSTgres Serial/Bigserial, в дальнййшем можно будет попробовать UUID уник айди
+    // раньше был IDENTITY: Hibernate не знает id до INSERT и поэтому не может батчить вставки
+    // sequence c pooled-оптимизатором: один nextval на 50 id, вставки идут batch-ами (массовый импорт)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
 
 
     private Long id;
@@ -88,5 +93,11 @@ public class User {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private Role role = Role.USER;
+
+    // оптимистическая блокировка: UPDATE ... WHERE version = ?, параллельная запись не затирает чужую молча.
+    // Наружу уходит как ETag. Long, а не long: ddl-auto добавит колонку nullable, старые строки
+    // получают 0 в data-postgresql.sql
+    @Version
+    private Long version;
 }
 
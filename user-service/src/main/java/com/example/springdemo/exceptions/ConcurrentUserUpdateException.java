@@ -0,0 +1,12 @@
+package com.example.springdemo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// PUT без If-Match столкнулся с параллельной записью между чтением и UPDATE (сработал @Version)
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConcurrentUserUpdateException extends BusinessException {
+    public ConcurrentUserUpdateException(Long id) {
+        super("CONCURRENT_UPDATE", "Пользователь с ID " + id + " одновременно изменен другим запросом, повторите");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springdemo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// все соединения пула заняты дольше допустимого — быстрый 503 вместо ожидания на connection-timeout Hikari
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DatabaseOverloadedException extends BusinessException {
+    public DatabaseOverloadedException() {
+        super("DATABASE_OVERLOADED", "Сервис перегружен, повторите запрос позже");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springdemo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// очередь хеширования паролей переполнена — клиенту лучше повторить позже, чем висеть на потоке
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingOverloadedException extends BusinessException {
+    public PasswordHashingOverloadedException() {
+        super("PASSWORD_HASHING_OVERLOADED", "Сервис регистрации перегружен, повторите запрос позже");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.springdemo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// If-Match не совпал с текущей версией: пользователя уже изменили, клиенту нужно перечитать его
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class UserVersionMismatchException extends BusinessException {
+    public UserVersionMismatchException(Long id) {
+        super("VERSION_MISMATCH", "Пользователь с ID " + id + " изменен, версия из If-Match устарела");
+    }
+}
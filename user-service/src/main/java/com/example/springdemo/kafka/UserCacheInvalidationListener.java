@@ -0,0 +1,35 @@
+package com.example.springdemo.kafka;
+
+import com.example.springdemo.cache.UserCache;
+import com.example.springdemo.cache.UserCacheInvalidation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+// каждый инстанс слушает топик своей уникальной группой, чтобы инвалидацию получили все, а не один из группы
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "user.cache.invalidation.enabled", havingValue = "true")
+public class UserCacheInvalidationListener {
+
+    private final UserCache userCache;
+
+    @KafkaListener(
+            topics = "${user.cache.invalidation.topic:user-cache-invalidation-topic}",
+            groupId = "user-cache-#{T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "spring.json.use.type.headers=false",
+                    "spring.json.value.default.type=com.example.springdemo.cache.UserCacheInvalidation"
+            })
+    public void onInvalidation(UserCacheInvalidation invalidation) {
+        log.debug("Инвалидация кэша пользователя: {}", invalidation);
+        String[] emails = invalidation.emails() != null
+                ? invalidation.emails().toArray(String[]::new)
+                : new String[0];
+        userCache.invalidate(invalidation.id(), emails);
+    }
+}
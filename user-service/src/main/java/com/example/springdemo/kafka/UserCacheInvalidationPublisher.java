@@ -0,0 +1,39 @@
+package com.example.springdemo.kafka;
+
+import com.example.springdemo.cache.UserCacheInvalidation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//------------------второй уровень кэша: рассылка инвалидаций другим инстансам-----------------
+// по умолчанию выключено (user.cache.invalidation.enabled=false) — один инстанс живет только на локальном кэше и TTL
+@Component
+@Slf4j
+public class UserCacheInvalidationPublisher {
+
+    @Value("${user.cache.invalidation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${user.cache.invalidation.topic:user-cache-invalidation-topic}")
+    private String topic;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    public void publish(Long id, String... emails) {
+        if (!enabled) {
+            return;
+        }
+        UserCacheInvalidation invalidation = new UserCacheInvalidation(id, List.of(emails));
+        kafkaTemplate.send(topic, String.valueOf(id), invalidation)
+                .exceptionally(ex -> {
+                    // не критично: у соседей запись все равно протухнет по TTL
+                    log.warn("Не удалось разослать инвалидацию кэша для id {}: {}", id, ex.getMessage());
+                    return null;
+                });
+    }
+}
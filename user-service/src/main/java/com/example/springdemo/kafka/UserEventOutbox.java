@@ -0,0 +1,34 @@
+package com.example.springdemo.kafka;
+
+import com.example.common.dto.UserEventDto;
+import com.example.springdemo.entity.OutboxEvent;
+import com.example.springdemo.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+//------------------запись событий в outbox вместо прямой отправки в Kafka-----------------
+// MANDATORY: вызывать только внутри транзакции, которая меняет users — либо сохранится и юзер и событие, либо ничего
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UserEventOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UserEventDto event) {
+        outboxEventRepository.save(OutboxEvent.of(event));
+        log.debug("Событие {} для {} записано в outbox", event.eventType(), event.email());
+    }
+
+    // для массового импорта: строки outbox уходят тем же batch INSERT
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<UserEventDto> events) {
+        outboxEventRepository.saveAll(events.stream().map(OutboxEvent::of).toList());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.springdemo.kafka;
+
+import com.example.springdemo.entity.OutboxEvent;
+import com.example.springdemo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//------------------фоновый relay: outbox -> Kafka-----------------
+// короткая транзакция берет пачку строк (FOR UPDATE SKIP LOCKED) и помечает их claimed_until, потом без
+// транзакции и соединения отправляем пачку и ждем ack, и второй короткой транзакцией удаляем отправленные строки.
+// если Kafka не ответила — claim снимается, строки уйдут на следующем тике; если relay упал между отправкой
+// и удалением — строки освободятся по истечении claim-timeout и уйдут повторно (at-least-once)
+@Component
+@Slf4j
+public class UserEventOutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final UserEventProducer userEventProducer;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration claimTimeout;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizes;
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+
+    public UserEventOutboxRelay(OutboxEventRepository outboxEventRepository,
+                                UserEventProducer userEventProducer,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${user.outbox.relay.batch-size:100}") int batchSize,
+                                @Value("${user.outbox.relay.send-timeout:10s}") Duration sendTimeout,
+                                @Value("${user.outbox.relay.claim-timeout:60s}") Duration claimTimeout) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.userEventProducer = userEventProducer;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.claimTimeout = claimTimeout;
+
+        this.sentCounter = Counter.builder("user.outbox.sent")
+                .description("События, отправленные из outbox в Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("user.outbox.failed")
+                .description("Неудачные попытки отправить пачку из outbox")
+                .register(meterRegistry);
+        // сколько событий продюсер получает разом; как он их склеил в запросы к брокеру — в метриках
+        // самого клиента (kafka.producer.batch.size.avg, kafka.producer.records.per.request.avg)
+        this.batchSizes = DistributionSummary.builder("user.outbox.batch.size")
+                .description("Событий в одной пачке relay")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("user.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Возраст самого старого неотправленного события, мс")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        // count(*) считает relay раз за проход, а не каждый scrape
+        Gauge.builder("user.outbox.pending", pending, AtomicLong::get)
+                .description("Сколько событий ждали отправки на конец последнего прохода relay")
+                .register(meterRegistry);
+    }
+
+    // linger — пауза между проходами когда outbox пуст; пока пачки полные, разбираем без пауз
+    @Scheduled(fixedDelayString = "${user.outbox.relay.linger-ms:200}",
+            initialDelayString = "${user.outbox.relay.linger-ms:200}")
+    public void relay() {
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+            } while (sent == batchSize);
+            pending.set(outboxEventRepository.count());
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("Ошибка отправки событий из outbox, повторим позже: {}", e.getMessage());
+        }
+    }
+
+    // возвращает сколько событий ушло в этой пачке
+    int relayBatch() {
+        List<OutboxEvent> batch = claimBatch();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = batch.stream().map(OutboxEvent::getId).toList();
+        batchSizes.record(batch.size());
+
+        // сначала отдаем продюсеру всю пачку (он сам склеит ее в batch-запросы), потом ждем все ack разом
+        CompletableFuture<?>[] acks = batch.stream()
+                .map(outboxEvent -> userEventProducer.sendUserEvent(outboxEvent.toEvent()))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(acks).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.releaseClaims(ids));
+            throw new IllegalStateException("Kafka не подтвердила пачку из " + batch.size() + " событий", e);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteAllByIdInBatch(ids));
+        sentCounter.increment(batch.size());
+        return batch.size();
+    }
+
+    // блокировки держим только пока ставим claimed_until, изменения сущностей сбрасываются при коммите
+    private List<OutboxEvent> claimBatch() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<OutboxEvent> claimed = outboxEventRepository
+                    .findByClaimedUntilIsNullOrClaimedUntilBeforeOrderByIdAsc(now, Limit.of(batchSize));
+            Instant claimedUntil = now.plus(claimTimeout);
+            claimed.forEach(outboxEvent -> outboxEvent.setClaimedUntil(claimedUntil));
+            return claimed;
+        });
+        if (batch == null || batch.isEmpty()) {
+            lagMillis.set(0);
+            return List.of();
+        }
+        lagMillis.set(Duration.between(batch.get(0).getOccurredAt(), Instant.now()).toMillis());
+        return batch;
+    }
+}
@@ -2,35 +2,73 @@ package com.example.springdemo.kafka;
 
 
 import com.example.common.dto.UserEventDto;
+import com.example.common.dto.UserEventTopics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 //------------------kafka producer-----------------
+// вызывается из UserEventOutboxRelay; ошибку не глотаем — relay должен узнать о ней и повторить пачку
 @Component
 @Slf4j
 public class UserEventProducer {
-    private static final String USER_EVENTS_TOPIC = "user-registration-topic";
 
-    @Autowired
-    private KafkaTemplate<String, UserEventDto> kafkaTemplate;
+    private final KafkaTemplate<String, UserEventDto> kafkaTemplate;
+
+    // время от send до ack брокера по топикам, отдельно для подтвержденных и неудачных отправок
+    private final Map<UserEventDto.EventType, Timer> ackTimers = new EnumMap<>(UserEventDto.EventType.class);
+    private final Map<UserEventDto.EventType, Timer> failedAckTimers = new EnumMap<>(UserEventDto.EventType.class);
+    private final Counter failedCounter;
+
+    public UserEventProducer(KafkaTemplate<String, UserEventDto> kafkaTemplate, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        for (UserEventDto.EventType eventType : UserEventDto.EventType.values()) {
+            String topic = UserEventTopics.forType(eventType);
+            ackTimers.put(eventType, ackTimer(meterRegistry, topic, "success"));
+            failedAckTimers.put(eventType, ackTimer(meterRegistry, topic, "error"));
+        }
+        this.failedCounter = Counter.builder("user.events.send.failed")
+                .description("События, которые Kafka не подтвердила")
+                .register(meterRegistry);
+    }
 
     public CompletableFuture<Void> sendUserEvent(UserEventDto event) {
-        log.info("Отправка события в Kafka: {}", event);
-
-        return kafkaTemplate.send(USER_EVENTS_TOPIC, event.email(), event)  // ← event.email() теперь работает!
-                .thenAccept(result -> {
-                    log.info("Событие успешно отправлено в топик: {}, partition: {}, offset: {}",
-                            USER_EVENTS_TOPIC,
-                            result.getRecordMetadata().partition(),
-                            result.getRecordMetadata().offset());
+        log.debug("Отправка события в Kafka: {}", event);
+
+        String topic = UserEventTopics.forType(event.eventType());
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, event.email(), event)  // ← event.email() теперь работает!
+                .whenComplete((result, ex) -> {
+                    long elapsed = System.nanoTime() - start;
+                    if (ex != null) {
+                        failedAckTimers.get(event.eventType()).record(elapsed, TimeUnit.NANOSECONDS);
+                        failedCounter.increment();
+                        log.error("Ошибка отправки события в Kafka: {}", ex.getMessage());
+                    } else {
+                        ackTimers.get(event.eventType()).record(elapsed, TimeUnit.NANOSECONDS);
+                        log.debug("Событие успешно отправлено в топик: {}, partition: {}, offset: {}",
+                                topic,
+                                result.getRecordMetadata().partition(),
+                                result.getRecordMetadata().offset());
+                    }
                 })
-                .exceptionally(ex -> {
-                    log.error("Ошибка отправки события в Kafka: {}", ex.getMessage());
-                    return null;
-                });
+                .thenAccept(result -> { });
+    }
+
+    private static Timer ackTimer(MeterRegistry meterRegistry, String topic, String outcome) {
+        return Timer.builder("user.events.send")
+                .description("Время от отправки события до ack Kafka")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
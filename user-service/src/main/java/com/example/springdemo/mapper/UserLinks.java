@@ -0,0 +1,109 @@
+package com.example.springdemo.mapper;
+
+import com.example.springdemo.controller.UserController;
+import com.example.springdemo.dto.UserResponseDto;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+// HATEOAS-ссылки пользователя. linkTo(methodOn(...)) на каждого пользователя — это CGLIB-прокси,
+// запись вызова и разбор текущего URI, поэтому шаблоны self/update/delete строятся один раз
+// на базовый URI, а на пользователя остается подставить id в готовую строку
+@Component
+public class UserLinks {
+
+    // Accept для внутренних клиентов, которым ссылки не нужны
+    public static final String NO_LINKS_VALUE = "application/vnd.users.no-links+json";
+    public static final MediaType NO_LINKS = MediaType.parseMediaType(NO_LINKS_VALUE);
+
+    // Host приходит от клиента — кэш ограничен, чтобы не расти от произвольных заголовков
+    private static final int MAX_CACHED_BASE_URIS = 64;
+
+    // id, которого не бывает в реальных URI: по нему находим место подстановки в готовой ссылке
+    private static final long ID_SENTINEL = Long.MIN_VALUE;
+
+    private final Map<String, LinkTemplates> templatesByBaseUri = new ConcurrentHashMap<>();
+
+    // Представление для текущего запроса: со ссылками или без (по Accept).
+    // Берется один раз на ответ и применяется ко всем пользователям в нем
+    public UnaryOperator<UserResponseDto> forCurrentRequest() {
+        return acceptsNoLinks() ? UnaryOperator.identity() : templatesForCurrentRequest()::withLinks;
+    }
+
+    LinkTemplates templatesForCurrentRequest() {
+        String baseUri = ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+        LinkTemplates templates = templatesByBaseUri.get(baseUri);
+        if (templates != null) {
+            return templates;
+        }
+        templates = resolveTemplates();
+        if (templatesByBaseUri.size() < MAX_CACHED_BASE_URIS) {
+            templatesByBaseUri.putIfAbsent(baseUri, templates);
+        }
+        return templates;
+    }
+
+    private static LinkTemplates resolveTemplates() {
+        return new LinkTemplates(
+                Template.of(linkTo(methodOn(UserController.class).getUser(ID_SENTINEL, null)).toUri().toString()),
+                Template.of(linkTo(methodOn(UserController.class).updateUser(ID_SENTINEL, null, null)).toUri().toString()),
+                Template.of(linkTo(methodOn(UserController.class).deleteUser(ID_SENTINEL)).toUri().toString()));
+    }
+
+    // по нему же UserETags выбирает ETag представления
+    public static boolean acceptsNoLinks() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        String accept = attributes.getRequest().getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || !accept.contains(NO_LINKS.getSubtype())) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(NO_LINKS::equalsTypeAndSubtype);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    record LinkTemplates(Template self, Template update, Template delete) {
+
+        // копия, а не мутация: DTO без ссылок может лежать в кэше и отдаваться другим запросам
+        UserResponseDto withLinks(UserResponseDto user) {
+            UserResponseDto dto = new UserResponseDto(
+                    user.getId(), user.getName(), user.getLastName(), user.getEmail(), user.getAge());
+            dto.setVersion(user.getVersion());
+            long id = user.getId();
+            dto.add(Link.of(self.expand(id), IanaLinkRelations.SELF));
+            dto.add(Link.of(update.expand(id), "update"));
+            dto.add(Link.of(delete.expand(id), "delete"));
+            return dto;
+        }
+    }
+
+    record Template(String prefix, String suffix) {
+
+        static Template of(String resolved) {
+            String sentinel = String.valueOf(ID_SENTINEL);
+            int at = resolved.lastIndexOf(sentinel);
+            return new Template(resolved.substring(0, at), resolved.substring(at + sentinel.length()));
+        }
+
+        String expand(long id) {
+            return prefix + id + suffix;
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package com.example.springdemo.mapper;
 
-import com.example.springdemo.controller.UserController;
 import com.example.springdemo.dto.UserResponseDto;
 import com.example.springdemo.dto.CreateUserDto;
 import com.example.springdemo.entity.User;
+import com.example.springdemo.repository.UserSummary;
 import org.springframework.stereotype.Component;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import java.util.Locale;
 
 
 @Component
 public class UserMapper {  // ← Добавь class
 
+    // HATEOAS-ссылки здесь не добавляются: DTO кэшируется и не зависит от запроса,
+    // ссылки навешивает контроллер через UserLinks
     public UserResponseDto toDto(User user) {
         UserResponseDto dto = new UserResponseDto(
                 user.getId(),
@@ -21,15 +22,19 @@ public class UserMapper {  // ← Добавь class
                 user.getEmail(),
                 user.getAge()
         );
+        dto.setVersion(user.getVersion());
+        return dto;
+    }
 
-        // HATEOAS ссылки
-        dto.add(linkTo(methodOn(UserController.class)
-                .getUser(user.getId())).withSelfRel());
-        dto.add(linkTo(methodOn(UserController.class)
-                .updateUser(user.getId(), null)).withRel("update"));
-        dto.add(linkTo(methodOn(UserController.class)
-                .deleteUser(user.getId())).withRel("delete"));
-
+    public UserResponseDto toDto(UserSummary user) {
+        UserResponseDto dto = new UserResponseDto(
+                user.id(),
+                user.name(),
+                user.lastName(),
+                user.email(),
+                user.age()
+        );
+        dto.setVersion(user.version());
         return dto;
     }
 
@@ -37,8 +42,14 @@ public class UserMapper {  // ← Добавь class
         User user = new User();
         user.setName(dto.name());
         user.setLastName(dto.lastName());
-        user.setEmail(dto.email());
+        user.setEmail(normalizeEmail(dto.email()));
         user.setAge(dto.age());
         return user;
     }
-}
\ No newline at end of file
+
+    // email храним и ищем только в нижнем регистре: Artur@Mail.ru и artur@mail.ru — один адрес,
+    // тогда уникальный индекс idx_users_email ловит такие дубликаты, а обычный email = ? идет по нему же
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.springdemo.repository;
+
+import com.example.springdemo.entity.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // самые старые свободные события первыми (не взятые или с истекшим claim); FOR UPDATE SKIP LOCKED
+    // (lock.timeout = -2) — несколько инстансов relay разбирают разные строки и не ждут друг друга
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<OutboxEvent> findByClaimedUntilIsNullOrClaimedUntilBeforeOrderByIdAsc(Instant now, Limit limit);
+
+    // Kafka не подтвердила пачку — строки снова свободны, не дожидаясь истечения claim
+    @Modifying
+    @Query("update OutboxEvent e set e.claimedUntil = null where e.id in :ids")
+    int releaseClaims(Collection<Long> ids);
+}
@@ -1,16 +1,51 @@
 package com.example.springdemo.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import com.example.springdemo.entity.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 //интерфейс к БД через JPA что достаем из БД
-public interface UserRepository extends JpaRepository<User, Long> {   // JpaRepos - CRUD из коробки
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {   // JpaRepos - CRUD из коробки
+    // конструктор UserSummary прямо в JPQL: select только нужных колонок, без password
+    String SELECT_SUMMARY = "select new com.example.springdemo.repository.UserSummary("
+            + "u.id, u.name, u.lastName, u.email, u.age, u.version) from User u";
+
     Optional<User> findByEmail(String email); // кастомный поиск по email/ оptionalUser защита от null/ findByEmail spring сам создаст sql запрос
     boolean existsByEmail(String email);
+
+    // проверка уникальности сразу для пачки email одним запросом (массовый импорт)
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
     //only активные юзеры
-    List<User> findAllByIsActiveTrue();
+    // keyset-пагинация: WHERE is_active AND id > :afterId ORDER BY id LIMIT :limit
+    // в отличие от OFFSET не перечитывает пропущенные строки, идет по частичному индексу idx_users_active_id
+    // (см. data-postgresql.sql), удаленные строки в нем не лежат вовсе
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query(SELECT_SUMMARY + " where u.isActive = true and u.id > :afterId order by u.id")
+    List<UserSummary> findActiveSummaries(@Param("afterId") Long afterId, Limit limit);
+
+    // чтение для GET по id/email: проекция вместо сущности, транзакция только на чтение
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query(SELECT_SUMMARY + " where u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query(SELECT_SUMMARY + " where u.email = :email")
+    Optional<UserSummary> findSummaryByEmail(@Param("email") String email);
 
     Optional<User> findById(Long id);
 }
@@ -0,0 +1,14 @@
+package com.example.springdemo.repository;
+
+import com.example.springdemo.dto.UpdateUserDto;
+
+import java.time.Instant;
+
+// запросы, которые не выражаются производным методом или статическим @Query
+public interface UserRepositoryCustom {
+
+    // UPDATE одним запросом без предварительного SELECT: SET только по не-null полям changes,
+    // version = version + 1, WHERE id = :id AND version = :version.
+    // 0 — пользователя нет или версия уже другая
+    int updateIfVersionMatches(Long id, long version, UpdateUserDto changes, Instant updatedAt);
+}
@@ -0,0 +1,46 @@
+package com.example.springdemo.repository;
+
+import com.example.springdemo.dto.UpdateUserDto;
+import com.example.springdemo.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+// Spring Data подключает реализацию фрагмента по суффиксу Impl
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // bulk update идет мимо сущности: @Version и @UpdateTimestamp тут не работают, выставляем их сами
+    @Override
+    @Transactional
+    public int updateIfVersionMatches(Long id, long version, UpdateUserDto changes, Instant updatedAt) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+
+        if (changes.name() != null) {
+            update.set(user.<String>get("name"), changes.name());
+        }
+        if (changes.lastName() != null) {
+            update.set(user.<String>get("lastName"), changes.lastName());
+        }
+        if (changes.email() != null) {
+            update.set(user.<String>get("email"), changes.email());
+        }
+        if (changes.age() != null) {
+            update.set(user.<Integer>get("age"), changes.age());
+        }
+        update.set(user.<Instant>get("updatedAt"), updatedAt);
+        update.set(user.<Long>get("version"), cb.sum(user.<Long>get("version"), 1L));
+        update.where(cb.equal(user.get("id"), id), cb.equal(user.get("version"), version));
+
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.springdemo.repository;
+
+// проекция для чтения: только поля, которые уходят в UserResponseDto.
+// Hibernate не создает managed-сущность — нет снимка для dirty checking и не тянется колонка password
+public record UserSummary(Long id, String name, String lastName, String email, Integer age, Long version) {
+}
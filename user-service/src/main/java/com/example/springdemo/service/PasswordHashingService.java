@@ -0,0 +1,157 @@
+package com.example.springdemo.service;
+
+import com.example.springdemo.exceptions.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//---------отдельный пул для bcrypt-----------
+// раньше encode шел прямо на потоке Tomcat: при всплеске регистраций bcrypt съедал все CPU и GET-запросы ждали
+// теперь хешей одновременно не больше threads, в очереди не больше queue-capacity, остальным сразу 503
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    // сколько хешей одного или нескольких импортов может быть в пуле одновременно
+    private final Semaphore importPermits;
+    private final Timer hashTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(BCryptPasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${user.password.hashing.threads:0}") int threads,
+                                  @Value("${user.password.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${user.password.hashing.timeout:5s}") Duration timeout,
+                                  @Value("${user.password.hashing.import-concurrency:0}") int importConcurrency) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.importPermits = new Semaphore(importConcurrency > 0 ? importConcurrency : poolSize);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("user.password.hash")
+                .description("Время одного bcrypt хеша")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("user.password.hash.rejected")
+                .description("Хеши, отклоненные из-за переполненной очереди")
+                .register(meterRegistry);
+        Gauge.builder("user.password.hash.queue.depth", executor, e -> e.getQueue().size())
+                .description("Сколько паролей ждут хеширования")
+                .register(meterRegistry);
+        Gauge.builder("user.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        log.info("Пул хеширования паролей: {} потоков, очередь {}", poolSize, queueCapacity);
+    }
+
+    // неблокирующий вариант — для пакетного хеширования
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingOverloadedException();
+        }
+    }
+
+    // блокирующий вариант: поток запроса только ждет, CPU тратится в пуле
+    public String hash(String rawPassword) {
+        CompletableFuture<String> future = hashAsync(rawPassword);
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // ответ уже никому не нужен: отмененная задача из очереди пропускается и не тратит поток на bcrypt
+            future.cancel(false);
+            log.warn("Хеширование пароля не уложилось в {}", timeout);
+            throw new PasswordHashingOverloadedException();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingOverloadedException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // пакетный вариант для импорта: в пуле не больше import-concurrency хешей импорта,
+    // следующий пароль уходит только когда освободилось место. Очередь остается одиночным
+    // регистрациям, а ожидание импорта — это backpressure, а не отказ (rejected не растет)
+    public List<String> hashAll(List<String> rawPasswords) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (String rawPassword : rawPasswords) {
+                importPermits.acquire();
+                futures.add(importHash(rawPassword));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingOverloadedException();
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private CompletableFuture<String> importHash(String rawPassword) {
+        CompletableFuture<String> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            // очередь заняли одиночные регистрации: хешируем на потоке импорта
+            try {
+                return CompletableFuture.completedFuture(encode(rawPassword));
+            } finally {
+                importPermits.release();
+            }
+        }
+        future.whenComplete((hash, error) -> importPermits.release());
+        return future;
+    }
+
+    // таймер без Supplier-обертки: на каждый хеш только два nanoTime
+    private String encode(String rawPassword) {
+        long start = System.nanoTime();
+        try {
+            return passwordEncoder.encode(rawPassword);
+        } finally {
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.springdemo.service;
+
+import com.example.springdemo.dto.CreateUserDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+//---------ленивый разбор входного потока импорта: строка читается только когда импорт до нее дошел-----------
+// битая строка не валит весь импорт, а превращается в UserImportRow с parseError
+@Component
+@RequiredArgsConstructor
+public class UserImportParser {
+
+    // порядок колонок CSV, первая строка — заголовок
+    static final String CSV_HEADER = "name,lastName,email,age,password";
+
+    private final ObjectMapper objectMapper;
+
+    // одна JSON-запись CreateUserDto на строку
+    public Stream<UserImportRow> parseNdjson(BufferedReader reader) {
+        return lines(reader, false, (rowNumber, line) -> {
+            try {
+                return UserImportRow.parsed(rowNumber, objectMapper.readValue(line, CreateUserDto.class));
+            } catch (JsonProcessingException e) {
+                return UserImportRow.failed(rowNumber, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+        });
+    }
+
+    // name,lastName,email,age,password — без кавычек и экранирования, age можно оставить пустым
+    public Stream<UserImportRow> parseCsv(BufferedReader reader) {
+        return lines(reader, true, (rowNumber, line) -> {
+            String[] columns = line.split(",", -1);
+            if (columns.length != 5) {
+                return UserImportRow.failed(rowNumber, "Ожидается 5 колонок: " + CSV_HEADER);
+            }
+            Integer age;
+            try {
+                age = columns[3].isBlank() ? null : Integer.valueOf(columns[3].trim());
+            } catch (NumberFormatException e) {
+                return UserImportRow.failed(rowNumber, "Некорректный возраст: " + columns[3]);
+            }
+            return UserImportRow.parsed(rowNumber, new CreateUserDto(
+                    columns[0].trim(), columns[1].trim(), columns[2].trim(), age, columns[4]));
+        });
+    }
+
+    private Stream<UserImportRow> lines(BufferedReader reader, boolean skipHeader,
+                                        BiFunction<Integer, String, UserImportRow> parser) {
+        AtomicInteger rowNumber = new AtomicInteger();
+        Stream<String> lines = reader.lines().filter(line -> !line.isBlank());
+        if (skipHeader) {
+            lines = lines.skip(1);
+        }
+        Stream<UserImportRow> rows = lines.map(line -> parser.apply(rowNumber.incrementAndGet(), line));
+        return rows.onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.springdemo.service;
+
+import com.example.springdemo.dto.CreateUserDto;
+
+// строка импорта после разбора: либо user, либо parseError
+public record UserImportRow(int rowNumber, CreateUserDto user, String parseError) {
+
+    public static UserImportRow parsed(int rowNumber, CreateUserDto user) {
+        return new UserImportRow(rowNumber, user, null);
+    }
+
+    public static UserImportRow failed(int rowNumber, String parseError) {
+        return new UserImportRow(rowNumber, null, parseError);
+    }
+}
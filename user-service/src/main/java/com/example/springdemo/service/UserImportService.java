@@ -0,0 +1,180 @@
+package com.example.springdemo.service;
+
+import com.example.common.dto.UserEventDto;
+import com.example.springdemo.dto.BulkImportResultDto;
+import com.example.springdemo.dto.BulkImportRowResultDto;
+import com.example.springdemo.dto.BulkImportRowResultDto.Status;
+import com.example.springdemo.dto.CreateUserDto;
+import com.example.springdemo.entity.User;
+import com.example.springdemo.kafka.UserEventOutbox;
+import com.example.springdemo.mapper.UserMapper;
+import com.example.springdemo.model.enums.Role;
+import com.example.springdemo.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+//---------массовый импорт пользователей-----------
+// вместо N x (existsByEmail + bcrypt + save + send) на каждую пачку из chunk-size строк:
+// один запрос email IN (...), параллельный bcrypt в пуле, batch INSERT (users + outbox) одной транзакцией
+@Service
+@Slf4j
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final UserMapper userMapper;
+    private final UserEventOutbox userEventOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int chunkSize;
+
+    public UserImportService(UserRepository userRepository,
+                             PasswordHashingService passwordHashingService,
+                             UserMapper userMapper,
+                             UserEventOutbox userEventOutbox,
+                             TransactionTemplate transactionTemplate,
+                             Validator validator,
+                             @Value("${user.import.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.userMapper = userMapper;
+        this.userEventOutbox = userEventOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkImportResultDto importUsers(List<CreateUserDto> users) {
+        List<UserImportRow> rows = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            rows.add(UserImportRow.parsed(i + 1, users.get(i)));
+        }
+        return importUsers(rows.stream());
+    }
+
+    // поток читается пачками по chunkSize, в памяти держим только текущую пачку и множество уже встреченных email
+    public BulkImportResultDto importUsers(Stream<UserImportRow> rows) {
+        List<BulkImportRowResultDto> results = new ArrayList<>();
+        Set<String> seenEmails = new HashSet<>();
+
+        try (rows) {
+            Iterator<UserImportRow> iterator = rows.iterator();
+            List<UserImportRow> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize) {
+                    results.addAll(importChunk(chunk, seenEmails));
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                results.addAll(importChunk(chunk, seenEmails));
+            }
+        }
+
+        int created = (int) results.stream().filter(r -> r.status() == Status.CREATED).count();
+        log.info("Импорт пользователей завершен: строк {}, создано {}", results.size(), created);
+        return new BulkImportResultDto(results.size(), created, results.size() - created, results);
+    }
+
+    private List<BulkImportRowResultDto> importChunk(List<UserImportRow> chunk, Set<String> seenEmails) {
+        BulkImportRowResultDto[] results = new BulkImportRowResultDto[chunk.size()];
+
+        // 1. разбор и валидация, дубликаты внутри самого файла
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            UserImportRow row = chunk.get(i);
+            if (row.parseError() != null) {
+                results[i] = rowResult(row, Status.INVALID, null, row.parseError());
+                continue;
+            }
+            Set<ConstraintViolation<CreateUserDto>> violations = validator.validate(row.user());
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                results[i] = rowResult(row, Status.INVALID, null, error);
+            } else if (!seenEmails.add(UserMapper.normalizeEmail(row.user().email()))) {
+                results[i] = rowResult(row, Status.DUPLICATE, null, "Email повторяется во входных данных");
+            } else {
+                candidates.add(i);
+            }
+        }
+
+        // 2. какие email уже есть в базе — одним запросом на всю пачку
+        Set<String> existing = candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findExistingEmails(
+                        candidates.stream().map(i -> UserMapper.normalizeEmail(chunk.get(i).user().email())).toList()));
+        List<Integer> toCreate = new ArrayList<>();
+        for (Integer i : candidates) {
+            UserImportRow row = chunk.get(i);
+            if (existing.contains(UserMapper.normalizeEmail(row.user().email()))) {
+                results[i] = rowResult(row, Status.DUPLICATE, null, "Email уже используется");
+            } else {
+                toCreate.add(i);
+            }
+        }
+
+        if (!toCreate.isEmpty()) {
+            createAll(chunk, toCreate, results);
+        }
+        return List.of(results);
+    }
+
+    private void createAll(List<UserImportRow> chunk, List<Integer> toCreate, BulkImportRowResultDto[] results) {
+        // 3. bcrypt параллельно в пуле хеширования
+        List<String> hashes = passwordHashingService.hashAll(
+                toCreate.stream().map(i -> chunk.get(i).user().password()).toList());
+
+        List<User> users = new ArrayList<>(toCreate.size());
+        Instant now = Instant.now();
+        for (int j = 0; j < toCreate.size(); j++) {
+            User user = userMapper.toEntity(chunk.get(toCreate.get(j)).user());
+            user.setPassword(hashes.get(j));
+            user.setCreatedAt(now);
+            user.setRole(Role.USER);
+            users.add(user);
+        }
+
+        // 4. batch INSERT в users и outbox одной транзакцией (id из sequence, поэтому Hibernate может батчить)
+        try {
+            List<User> saved = transactionTemplate.execute(status -> {
+                List<User> savedUsers = userRepository.saveAll(users);
+                userEventOutbox.appendAll(savedUsers.stream()
+                        .map(user -> UserEventDto.created(user.getEmail()))
+                        .toList());
+                return savedUsers;
+            });
+            for (int j = 0; j < toCreate.size(); j++) {
+                UserImportRow row = chunk.get(toCreate.get(j));
+                results[toCreate.get(j)] = rowResult(row, Status.CREATED, saved.get(j).getId(), null);
+            }
+        } catch (RuntimeException e) {
+            // например, параллельная регистрация с тем же email — вся пачка откатилась
+            log.warn("Не удалось сохранить пачку из {} пользователей: {}", users.size(), e.getMessage());
+            for (Integer i : toCreate) {
+                results[i] = rowResult(chunk.get(i), Status.FAILED, null, "Ошибка записи пачки: " + e.getMessage());
+            }
+        }
+    }
+
+    private static BulkImportRowResultDto rowResult(UserImportRow row, Status status, Long id, String error) {
+        String email = row.user() != null ? row.user().email() : null;
+        return new BulkImportRowResultDto(row.rowNumber(), email, status, id, error);
+    }
+}
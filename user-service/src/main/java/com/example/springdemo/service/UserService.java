@@ -1,25 +1,39 @@
 package com.example.springdemo.service;
 
 import com.example.common.dto.UserEventDto;
+import com.example.springdemo.cache.UserCache;
 import com.example.springdemo.dto.CreateUserDto;
 import com.example.springdemo.dto.UpdateUserDto;
 import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.exceptions.ConcurrentUserUpdateException;
 import com.example.springdemo.exceptions.EmailAlreadyExistsException;
 import com.example.springdemo.exceptions.UserAlreadyDeletedException;
 import com.example.springdemo.exceptions.UserNotFoundException;
-import com.example.springdemo.kafka.UserEventProducer;
+import com.example.springdemo.exceptions.UserVersionMismatchException;
+import com.example.springdemo.kafka.UserCacheInvalidationPublisher;
+import com.example.springdemo.kafka.UserEventOutbox;
 import com.example.springdemo.mapper.UserMapper;
 import com.example.springdemo.model.enums.Role;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.example.springdemo.entity.User;
 import com.example.springdemo.repository.UserRepository;
+import com.example.springdemo.repository.UserSummary;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Slf4j // для логирования
@@ -28,162 +42,307 @@ import java.util.stream.Collectors;
 //---------класс для бизнес-логики(проверка преобразование хэширование)
 public class UserService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_BATCH_SIZE = 500;
+    // уникальный индекс users.email (см. User), по нему узнаем конфликт email при записи
+    private static final String EMAIL_UNIQUE_INDEX = "idx_users_email";
+
     private final UserRepository userRepository;
 
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     //добавил к домашнему заданию №5
 
-    private final UserEventProducer userEventProducer;
+    private final UserEventOutbox userEventOutbox;
+
+    private final TransactionTemplate transactionTemplate;
 
     private final UserMapper userMapper;
 
+    private final UserCache userCache;
 
-    //---------------метод создания нового пользователя-----------------------
+    private final UserCacheInvalidationPublisher userCacheInvalidationPublisher;
 
-    public UserResponseDto createUser(CreateUserDto createDto) {
+    private final UserServiceMetrics metrics;
 
-        if (userRepository.existsByEmail(createDto.email())) {
-            throw new EmailAlreadyExistsException(createDto.email());
-        }
 
-        //создание юзера
-        User createUser = userMapper.toEntity(createDto);
-        createUser.setCreatedAt(Instant.now());
+    //---------------метод создания нового пользователя-----------------------
 
-        // хешируем парооль
-        String hashedPassword = passwordEncoder.encode(createDto.password());
-        createUser.setPassword(hashedPassword);
-        log.info("Пароль после хеширования: {}", hashedPassword);
+    // транзакция только вокруг записи (users + outbox), bcrypt выше — чтобы не держать соединение из пула во время хеширования.
+    // Уникальность email не проверяем отдельным existsByEmail (лишний запрос и гонка между проверкой и вставкой):
+    // INSERT сразу, дубликат ловит уникальный индекс и превращается в EmailAlreadyExistsException
+    public UserResponseDto createUser(CreateUserDto createDto) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            //создание юзера
+            User createUser = userMapper.toEntity(createDto);
+            createUser.setCreatedAt(Instant.now());
+
+            // хешируем парооль (в отдельном ограниченном пуле, при перегрузке 503)
+            createUser.setPassword(passwordHashingService.hash(createDto.password()));
+
+            // присваиваем роль
+            createUser.setRole(Role.USER);
+
+            // СОХРАНЯЕМ пользователя в базу и событие в outbox одной транзакцией;
+            // flush сразу после save — нарушение индекса всплывает здесь, до записи в outbox
+            User savedUser;
+            try {
+                savedUser = transactionTemplate.execute(status -> {
+                    User user = userRepository.saveAndFlush(createUser);
+                    userEventOutbox.append(UserEventDto.created(user.getEmail()));
+                    return user;
+                });
+            } catch (DataIntegrityViolationException e) {
+                throw translateEmailConflict(e, UserMapper.normalizeEmail(createDto.email()));
+            }
 
+            log.debug("Пользователь сохранен в БД: {}", savedUser.getId());
+
+            UserResponseDto created = userMapper.toDto(savedUser);
+            succeeded = true;
+            return created;
+        } finally {
+            metrics.createUser.record(start, succeeded);
+        }
+    }
 
-        // присваиваем роль
-        createUser.setRole(Role.USER);
 
-        // СОХРАНЯЕМ пользователя в базу
-        User savedUser = userRepository.save(createUser);
+    //------------метод поиска всех пользователей-----------------
+    // keyset-пагинация по id: отдаем не больше limit активных юзеров с id > after
+    // раньше грузили всю таблицу в List, на миллионах юзеров это пик по памяти
 
-        log.info("Пользователь сохранен в БД: {}", savedUser.getEmail());
+    public List<UserResponseDto> getAllUsers(Long after, int limit) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            List<UserSummary> page = findActivePage(after, clampPageSize(limit));
 
-        // Тест Kafka
-        log.info("Проверка userEventProducer чето нет логов: {}", userEventProducer != null ? "NOT NULL" : "NULL");
-        // вынес метод чуть ниже
-        sendUserCreatedEvent(savedUser.getEmail());
+            // пустая первая страница = пользователей нет вообще, пустая следующая = просто конец списка
+            if (page.isEmpty() && after == null) {
+                throw new UserNotFoundException("Пользователи не найдены");
+            }
 
-        return userMapper.toDto(savedUser);
+            List<UserResponseDto> users = page.stream()
+                    .map(userMapper::toDto)
+                    .collect(Collectors.toList());
+            succeeded = true;
+            return users;
+        } finally {
+            metrics.getAllUsers.record(start, succeeded);
+        }
     }
 
-    // Вынес в отдельный метод для асинхронной отправки
-    private void sendUserCreatedEvent(String email) {
+    // ленивый поток всех активных юзеров для NDJSON: страницы по STREAM_BATCH_SIZE
+    // подтягиваются только когда предыдущая вычитана, в памяти не больше одной страницы.
+    // Таймер — от вызова до закрытия потока, т.е. вся выгрузка целиком
+    public Stream<UserResponseDto> streamAllUsers() {
+        long start = System.nanoTime();
+        Stream<UserResponseDto> users;
         try {
-            UserEventDto event = UserEventDto.created(email);
-            userEventProducer.sendUserEvent(event);
-            log.info("Событие USER_CREATED отправлено в Kafka");
-        } catch (Exception e) {
-            log.error("Ошибка при отправке в Kafka: {}", e.getMessage());
+            users = Stream.iterate(
+                            findActivePage(null, STREAM_BATCH_SIZE),
+                            page -> !page.isEmpty(),
+                            page -> page.size() < STREAM_BATCH_SIZE
+                                    ? List.of()
+                                    : findActivePage(page.get(page.size() - 1).id(), STREAM_BATCH_SIZE))
+                    .flatMap(List::stream)
+                    .map(userMapper::toDto);
+        } catch (RuntimeException e) {
+            metrics.streamAllUsers.record(start, false);
+            throw e;
         }
+        return users.onClose(() -> metrics.streamAllUsers.record(start, true));
     }
 
+    private List<UserSummary> findActivePage(Long after, int limit) {
+        long afterId = after != null ? after : 0L;
+        return userRepository.findActiveSummaries(afterId, Limit.of(limit));
+    }
 
-    //------------метод поиска всех пользователей-----------------
-
-    public List<UserResponseDto> getAllUsers() {
-        List<User> userEntities = userRepository.findAllByIsActiveTrue();
-
-        if (userEntities.isEmpty()) {
-            throw new UserNotFoundException("Пользователи не найдены");
-        }
-
-        return userEntities.stream()
-                .map(userMapper::toDto)
-                .collect(Collectors.toList());
+    public static int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 
     //------------найти пользователя по email-------------
 
-    public UserResponseDto getUserByEmail(String email) {
-        log.info("Ищем пользователя по email: {}", email);
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UserNotFoundException(email));
-        return userMapper.toDto(user);
+    // сначала кэш, в БД идем только при промахе; адрес приводим к виду, в котором он хранится
+    public UserResponseDto getUserByEmail(String rawEmail) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            String email = UserMapper.normalizeEmail(rawEmail);
+            UserResponseDto user = userCache.getByEmail(email, () -> {
+                UserSummary summary = userRepository.findSummaryByEmail(email)
+                        .orElseThrow(() -> new UserNotFoundException(email));
+                return userMapper.toDto(summary);
+            });
+            succeeded = true;
+            return user;
+        } finally {
+            metrics.getUserByEmail.record(start, succeeded);
+        }
     }
 
     // -----------найти по id------------
     public UserResponseDto getUserById(Long id) {
-        log.info("Ищем пользователя по id: {}", id);
-        User userEntity = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
-        return userMapper.toDto(userEntity);
-
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            UserResponseDto user = userCache.getById(id, key -> {
+                UserSummary summary = userRepository.findSummaryById(key)
+                        .orElseThrow(() -> new UserNotFoundException(key));
+                return userMapper.toDto(summary);
+            });
+            succeeded = true;
+            return user;
+        } finally {
+            metrics.getUserById.record(start, succeeded);
+        }
     }
 
     // --------обновить пользователя-----------
-    // В UserService добавь этот метод:
-    public UserResponseDto updateUser(Long id, UpdateUserDto updateDto) {
-        User existingUser = userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
-
-        // Обновляем только те поля, которые пришли в DTO (не null)
-        if (updateDto.name() != null) {
-            existingUser.setName(updateDto.name());
-        }
-        if (updateDto.lastName() != null) {
-            existingUser.setLastName(updateDto.lastName());
-        }
-        if (updateDto.email() != null) {
-            // Проверяем уникальность email, если он меняется
-            if (!updateDto.email().equals(existingUser.getEmail()) &&
-                    userRepository.existsByEmail(updateDto.email())) {
-                throw new EmailAlreadyExistsException(updateDto.email());
+    // expectedVersion — версия из If-Match. С ней — один UPDATE ... WHERE version = ? без чтения строки заранее,
+    // без нее — чтение и запись в одной транзакции, @DynamicUpdate пишет только измененные колонки.
+    // В обоих случаях событие USER_UPDATED уходит в outbox той же транзакцией
+    public UserResponseDto updateUser(Long id, UpdateUserDto updateDto, Long expectedVersion) {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        UpdateUserDto changes = new UpdateUserDto(updateDto.name(), updateDto.lastName(),
+                UserMapper.normalizeEmail(updateDto.email()), updateDto.age());
+        try {
+            UserResponseDto updated;
+            try {
+                updated = expectedVersion != null
+                        ? updateIfVersionMatches(id, changes, expectedVersion)
+                        : updateLoaded(id, changes);
+            } catch (DataIntegrityViolationException e) {
+                // уникальность email проверяет индекс при UPDATE, см. createUser
+                throw translateEmailConflict(e, changes.email());
+            } catch (OptimisticLockingFailureException e) {
+                throw new ConcurrentUserUpdateException(id);
             }
-            existingUser.setEmail(updateDto.email());
-        }
-        if (updateDto.age() != null) {
-            existingUser.setAge(updateDto.age());
+            succeeded = true;
+            return updated;
+        } finally {
+            metrics.updateUser.record(start, succeeded);
         }
+    }
 
-        existingUser.setUpdatedAt(Instant.now());
+    private UserResponseDto updateLoaded(Long id, UpdateUserDto changes) {
+        User updatedUser = transactionTemplate.execute(status -> {
+            User existingUser = userRepository.findById(id)
+                    .orElseThrow(() -> new UserNotFoundException(id));
+            String previousEmail = existingUser.getEmail();
 
-        User updatedUser = userRepository.save(existingUser);
+            // Обновляем только те поля, которые пришли в DTO (не null)
+            if (changes.name() != null) {
+                existingUser.setName(changes.name());
+            }
+            if (changes.lastName() != null) {
+                existingUser.setLastName(changes.lastName());
+            }
+            if (changes.email() != null) {
+                existingUser.setEmail(changes.email());
+            }
+            if (changes.age() != null) {
+                existingUser.setAge(changes.age());
+            }
+            existingUser.setUpdatedAt(Instant.now());
+
+            // flush сразу: в ответ и в ETag должна попасть уже увеличенная version
+            User user = userRepository.saveAndFlush(existingUser);
+            userEventOutbox.append(UserEventDto.updated(user.getEmail()));
+            // сбрасываем и старый и новый email, иначе по старому адресу кэш отдаст обновленного юзера
+            invalidateCachedUser(id, previousEmail, user.getEmail());
+            return user;
+        });
         return userMapper.toDto(updatedUser);
     }
 
+    // старый email тут неизвестен (строку не читали), поэтому сбрасываем id и новый адрес:
+    // запись старого email в кэше ведет на id, а dto по id с другим email UserCache считает промахом
+    private UserResponseDto updateIfVersionMatches(Long id, UpdateUserDto changes, long expectedVersion) {
+        UserSummary summary = transactionTemplate.execute(status -> {
+            if (userRepository.updateIfVersionMatches(id, expectedVersion, changes, Instant.now()) == 0) {
+                // редкий путь: отличаем «нет такого» от «версия устарела» отдельным запросом
+                throw userRepository.existsById(id)
+                        ? new UserVersionMismatchException(id)
+                        : new UserNotFoundException(id);
+            }
+            UserSummary user = userRepository.findSummaryById(id)
+                    .orElseThrow(() -> new UserNotFoundException(id));
+            userEventOutbox.append(UserEventDto.updated(user.email()));
+            invalidateCachedUser(id, user.email());
+            return user;
+        });
+        return userMapper.toDto(summary);
+    }
+
     // -----------удалить по id------------
+    @Transactional
     public void deleteUserById(Long id) {
-        log.info("Попытка удалить пользователя с ID: {}", id);
-
-        // есть ли пользователь в базе
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Пользователь с ID {} не найден", id);
-                    return new UserNotFoundException(id);
-                });
-
-        // не удалён ли он уже
-        if (!Boolean.TRUE.equals(user.getIsActive())) {
-            log.warn("Пользователь с ID {} уже неактивен, повторное удаление не требуется", id);
-            throw new UserAlreadyDeletedException(id);
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            // есть ли пользователь в базе
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> {
+                        log.warn("Пользователь с ID {} не найден", id);
+                        return new UserNotFoundException(id);
+                    });
+
+            // не удалён ли он уже
+            if (!Boolean.TRUE.equals(user.getIsActive())) {
+                log.warn("Пользователь с ID {} уже неактивен, повторное удаление не требуется", id);
+                throw new UserAlreadyDeletedException(id);
+            }
+            String userEmail = user.getEmail();
+            // мягкое удаление
+            user.setIsActive(false);
+
+            userRepository.save(user);
+            invalidateCachedUser(id, userEmail);
+            // событие уйдет в Kafka только если транзакция закоммитится
+            userEventOutbox.append(UserEventDto.deleted(userEmail));
+
+            log.debug("Пользователь с ID {} помечен как неактивный", id);
+            succeeded = true;
+        } finally {
+            metrics.deleteUserById.record(start, succeeded);
         }
-        String userEmail = user.getEmail();
-        // мягкое удаление
-        user.setIsActive(false);
-
-        userRepository.save(user);
-        // по аналогии выношу ниже
-        sendUserDeletedEvent(user.getEmail());
-
-        log.info("Пользователь с ID {} успешно помечен как неактивный", id);
     }
 
-    private void sendUserDeletedEvent(String email) {
-        try {
-            UserEventDto event = UserEventDto.deleted(email);
-            userEventProducer.sendUserEvent(event);
-            log.info("Событие USER_DELETED отправлено в Kafka");
-        } catch (Exception e) {
-            log.error("Ошибка при отправке в Kafka: {}", e.getMessage());
+    // нарушение idx_users_email или idx_users_email_lower -> 409, любое другое нарушение целостности пробрасываем как есть.
+    // email — нормализованный, тот, что записывали и на котором сработал индекс
+    private static RuntimeException translateEmailConflict(DataIntegrityViolationException e, String email) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(EMAIL_UNIQUE_INDEX)) {
+                return new EmailAlreadyExistsException(email);
+            }
         }
+        return e;
+    }
 
-
+    // локальный кэш + рассылка другим инстансам (если включена)
+    // внутри транзакции повторяем после коммита: иначе параллельный GET успеет закэшировать старую версию
+    private void invalidateCachedUser(Long id, String... emails) {
+        Runnable invalidation = () -> {
+            userCache.invalidate(id, emails);
+            userCacheInvalidationPublisher.publish(id, emails);
+        };
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
     }
 }
 
@@ -0,0 +1,57 @@
+package com.example.springdemo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Таймеры публичных методов UserService (user.service{method, outcome}).
+// Регистрируются один раз при старте: на горячем пути только System.nanoTime()
+// и Timer.record(long, TimeUnit) — без поиска в реестре, тегов и лямбд
+@Component
+public class UserServiceMetrics {
+
+    final MethodTimer createUser;
+    final MethodTimer getAllUsers;
+    final MethodTimer streamAllUsers;
+    final MethodTimer getUserByEmail;
+    final MethodTimer getUserById;
+    final MethodTimer updateUser;
+    final MethodTimer deleteUserById;
+
+    public UserServiceMetrics(MeterRegistry meterRegistry) {
+        this.createUser = new MethodTimer(meterRegistry, "createUser");
+        this.getAllUsers = new MethodTimer(meterRegistry, "getAllUsers");
+        this.streamAllUsers = new MethodTimer(meterRegistry, "streamAllUsers");
+        this.getUserByEmail = new MethodTimer(meterRegistry, "getUserByEmail");
+        this.getUserById = new MethodTimer(meterRegistry, "getUserById");
+        this.updateUser = new MethodTimer(meterRegistry, "updateUser");
+        this.deleteUserById = new MethodTimer(meterRegistry, "deleteUserById");
+    }
+
+    static final class MethodTimer {
+
+        private final Timer success;
+        private final Timer error;
+
+        private MethodTimer(MeterRegistry meterRegistry, String method) {
+            this.success = timer(meterRegistry, method, "success");
+            this.error = timer(meterRegistry, method, "error");
+        }
+
+        // startNanos — System.nanoTime() на входе в метод
+        void record(long startNanos, boolean succeeded) {
+            (succeeded ? success : error).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private static Timer timer(MeterRegistry meterRegistry, String method, String outcome) {
+            return Timer.builder("user.service")
+                    .description("Время выполнения методов UserService")
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+-- users.id раньше генерировался через IDENTITY, теперь через users_seq (pooled, шаг 50).
+-- если sequence отстает от уже существующих id — подтягиваем ее, иначе новые id совпадут со старыми
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users))
+WHERE (SELECT last_value FROM users_seq) < (SELECT COALESCE(MAX(id), 0) FROM users);
+
+-- email теперь хранится в нижнем регистре (UserMapper.normalizeEmail), приводим к нему старые строки.
+-- Сначала разводим строки, которые после приведения совпали бы друг с другом: в каждой группе адрес
+-- остается у активной строки, среди них — у той, где он уже в нижнем регистре, затем у меньшего id. Остальным
+-- дописываем в локальную часть +dup-<id> (john+dup-17@mail.ru) и записываем их в users_email_collisions —
+-- по ней пользователей разбирают вручную (слить, вернуть адрес, удалить)
+CREATE TABLE IF NOT EXISTS users_email_collisions (
+    user_id        BIGINT       PRIMARY KEY,
+    original_email VARCHAR(254) NOT NULL,
+    renamed_to     VARCHAR(254) NOT NULL,
+    kept_user_id   BIGINT       NOT NULL,
+    resolved_at    TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO users_email_collisions (user_id, original_email, renamed_to, kept_user_id)
+SELECT r.id, r.email, regexp_replace(lower(trim(r.email)), '@', '+dup-' || r.id || '@'), r.kept_user_id
+FROM (SELECT u.id, u.email,
+             first_value(u.id) OVER (PARTITION BY lower(trim(u.email))
+                                     ORDER BY u.is_active DESC, u.email = lower(trim(u.email)) DESC, u.id) AS kept_user_id
+      FROM users u) r
+WHERE r.id <> r.kept_user_id
+  AND NOT EXISTS (SELECT 1 FROM users_email_collisions c WHERE c.user_id = r.id);
+
+UPDATE users u SET email = (SELECT c.renamed_to FROM users_email_collisions c WHERE c.user_id = u.id)
+WHERE EXISTS (SELECT 1 FROM users_email_collisions c WHERE c.user_id = u.id AND c.original_email = u.email);
+
+-- коллизий больше нет, приводим все остальные
+UPDATE users SET email = lower(trim(email)) WHERE email <> lower(trim(email));
+
+-- регистронезависимая уникальность на уровне БД: строку, записанную в обход normalizeEmail,
+-- индекс не пропустит. Имя начинается с idx_users_email — UserService переводит нарушение в 409.
+-- @Index в User так не умеет (выражение), поэтому создаем здесь
+CREATE UNIQUE INDEX IF NOT EXISTS idx_users_email_lower ON users (lower(email));
+
+-- частичный индекс для keyset-чтения активных (UserRepository.findActiveSummaries):
+-- мягко удаленные строки в него не попадают, индекс меньше и сканы по нему их не перебирают.
+-- @Index в User так не умеет (нет WHERE), поэтому создаем здесь
+CREATE INDEX IF NOT EXISTS idx_users_active_id ON users (id) WHERE is_active;
+
+-- колонку version (User.@Version) ddl-auto добавляет без значения; null-версия ломает оптимистическую блокировку
+UPDATE users SET version = 0 WHERE version IS NULL;
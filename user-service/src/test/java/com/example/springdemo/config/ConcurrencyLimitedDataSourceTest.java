@@ -0,0 +1,48 @@
+package com.example.springdemo.config;
+
+import com.example.springdemo.exceptions.DatabaseOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitedDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final ConcurrencyLimitedDataSource dataSource =
+            new ConcurrencyLimitedDataSource(target, 1, Duration.ofMillis(50));
+
+    @Test
+    void getConnection_WhenLimitReached_ShouldThrowUntilConnectionClosed() throws SQLException {
+        // Given
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+
+        // When
+        Connection first = dataSource.getConnection();
+
+        // Then
+        assertThrows(DatabaseOverloadedException.class, dataSource::getConnection);
+
+        first.close();
+        first.close(); // повторный close не должен добавить лишнее разрешение
+        verify(connection, times(2)).close();
+        assertEquals(1, dataSource.availablePermits());
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_WhenTargetFails_ShouldReleasePermit() throws SQLException {
+        // Given
+        when(target.getConnection()).thenThrow(new SQLException("нет соединения"));
+
+        // When & Then
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(1, dataSource.availablePermits());
+    }
+}
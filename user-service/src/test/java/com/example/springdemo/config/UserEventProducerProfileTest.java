@@ -0,0 +1,26 @@
+package com.example.springdemo.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventProducerProfileTest {
+
+    @Test
+    void missingFrom_ShouldKeepExplicitlyConfiguredValues() {
+        // Given
+        Map<String, Object> configured = Map.of(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+
+        // When
+        Map<String, Object> missing = UserEventProducerProfile.of("throughput").missingFrom(configured);
+
+        // Then
+        assertFalse(missing.containsKey(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(20, missing.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals(true, missing.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertTrue(UserEventProducerProfile.of("default").missingFrom(configured).isEmpty());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.springdemo.controller;
 import com.example.springdemo.dto.CreateUserDto;
 import com.example.springdemo.dto.UpdateUserDto;
 import com.example.springdemo.dto.UserResponseDto;
+import com.example.springdemo.mapper.UserLinks;
 import com.example.springdemo.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -11,18 +12,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+// брокера в тестах нет: топики событий не создаем, иначе KafkaAdmin ждет его при старте контекста
+@SpringBootTest(properties = "spring.kafka.admin.auto-create=false")
 @AutoConfigureMockMvc
 class UserControllerTest {
 
@@ -114,21 +120,25 @@ class UserControllerTest {
                 .andExpect(jsonPath("$._links.delete.href").exists());
     }
 
-    // Тест 4: Обновление пользователя с HATEOAS
+    // Тест 4: Обновление пользователя с HATEOAS, If-Match -> ожидаемая версия, в ответе новый ETag
     @Test
     void updateUser_ShouldReturn200WithHateoas() throws Exception {
         // Given
         Long userId = 1L;
         UpdateUserDto updateDto = new UpdateUserDto("Артур", "Дмитриев", "artur.dmitriev@mail.ru", 30);
         UserResponseDto responseDto = createUserResponseDtoWithLinks(1L, "Артур", "Дмитриев", "artur.dmitriev@mail.ru", 30);
+        responseDto.setVersion(4L);
 
-        when(userService.updateUser(eq(userId), any(UpdateUserDto.class))).thenReturn(responseDto);
+        when(userService.updateUser(eq(userId), any(UpdateUserDto.class), eq(3L))).thenReturn(responseDto);
 
         // When & Then
         mockMvc.perform(put("/api/users/{id}", userId)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateDto)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.version").doesNotExist())
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.name").value("Артур"))
                 .andExpect(jsonPath("$.lastName").value("Дмитриев"))
@@ -157,7 +167,7 @@ class UserControllerTest {
         UserResponseDto user1 = createUserResponseDtoWithLinks(1L, "Артур", "Марченко", "artur@mail.ru", 25);
         UserResponseDto user2 = createUserResponseDtoWithLinks(2L, "Мария", "Иванова", "maria@mail.ru", 30);
 
-        when(userService.getAllUsers()).thenReturn(List.of(user1, user2));
+        when(userService.getAllUsers(null, UserService.DEFAULT_PAGE_SIZE)).thenReturn(List.of(user1, user2));
 
         // When & Then
         mockMvc.perform(get("/api/users"))
@@ -176,4 +186,123 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[1].age").value(30))
                 .andExpect(jsonPath("$[1].links[?(@.rel == 'self')].href").exists());
     }
-}
\ No newline at end of file
+
+    // Тест 7: Полная страница — в ответе курсор на следующую
+    @Test
+    void getAllUsers_WhenPageIsFull_ShouldReturnNextCursor() throws Exception {
+        // Given
+        UserResponseDto user1 = createUserResponseDtoWithLinks(5L, "Артур", "Марченко", "artur@mail.ru", 25);
+        UserResponseDto user2 = createUserResponseDtoWithLinks(7L, "Мария", "Иванова", "maria@mail.ru", 30);
+
+        when(userService.getAllUsers(3L, 2)).thenReturn(List.of(user1, user2));
+
+        // When & Then
+        mockMvc.perform(get("/api/users")
+                        .param("after", "3")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string("X-Next-Cursor", "7"))
+                .andExpect(header().string("Link", org.hamcrest.Matchers.containsString("after=7")));
+    }
+
+    // Тест 8: Accept без ссылок — для внутренних клиентов
+    @Test
+    void getUser_WithNoLinksAccept_ShouldReturnWithoutLinks() throws Exception {
+        // Given
+        when(userService.getUserById(1L)).thenReturn(new UserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25));
+
+        // When & Then
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .accept(UserLinks.NO_LINKS))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(UserLinks.NO_LINKS))
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$._links").doesNotExist())
+                .andExpect(jsonPath("$.links").doesNotExist());
+    }
+
+    // Тест 9: ссылки строятся по шаблону из id пользователя
+    @Test
+    void getAllUsers_ShouldExpandLinksPerUser() throws Exception {
+        // Given
+        when(userService.getAllUsers(null, UserService.DEFAULT_PAGE_SIZE)).thenReturn(List.of(
+                new UserResponseDto(5L, "Артур", "Марченко", "artur@mail.ru", 25),
+                new UserResponseDto(7L, "Мария", "Иванова", "maria@mail.ru", 30)));
+
+        // When & Then
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].links[?(@.rel == 'self')].href").value("http://localhost/api/users/5"))
+                .andExpect(jsonPath("$[1].links[?(@.rel == 'delete')].href").value("http://localhost/api/users/7"));
+    }
+
+    // Тест 10: слабый ETag в If-Match версией быть не может — 412 без обращения к сервису
+    @Test
+    void updateUser_WithWeakIfMatch_ShouldReturn412() throws Exception {
+        // When & Then
+        mockMvc.perform(put("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateUserDto(null, null, null, 30))))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(userService, never()).updateUser(anyLong(), any(UpdateUserDto.class), any());
+    }
+
+    // Тест 11: If-None-Match с текущей версией — 304 без тела, с тем же ETag
+    @Test
+    void getUser_WithMatchingIfNoneMatch_ShouldReturn304() throws Exception {
+        // Given
+        UserResponseDto user = new UserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
+        user.setVersion(2L);
+        when(userService.getUserById(1L)).thenReturn(user);
+        when(userService.getUserByEmail("artur@mail.ru")).thenReturn(user);
+
+        // When & Then
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1\", \"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/users/by-email")
+                        .param("email", "artur@mail.ru")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"2\""))
+                .andExpect(status().isNotModified());
+
+        // устаревшая версия — полный ответ
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(jsonPath("$.id").value(1L));
+    }
+
+    // Тест 12: Представление без ссылок — свой ETag, 304 только на него; ответы помечены Vary: Accept
+    @Test
+    void getUser_WithNoLinksAccept_ShouldUseRepresentationETag() throws Exception {
+        // Given
+        UserResponseDto user = new UserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
+        user.setVersion(2L);
+        when(userService.getUserById(1L)).thenReturn(user);
+
+        // When & Then - ETag HAL-представления к представлению без ссылок не подходит
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .accept(UserLinks.NO_LINKS)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-no-links\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(jsonPath("$._links").doesNotExist());
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .accept(UserLinks.NO_LINKS)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2-no-links\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/api/users/{id}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2-no-links\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.springdemo.kafka;
+
+import com.example.common.dto.UserEventDto;
+import com.example.springdemo.entity.OutboxEvent;
+import com.example.springdemo.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class UserEventOutboxRelayTest {
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final UserEventProducer userEventProducer = mock(UserEventProducer.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserEventOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new UserEventOutboxRelay(outboxEventRepository, userEventProducer,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry,
+                2, Duration.ofSeconds(1), Duration.ofSeconds(30));
+    }
+
+    private OutboxEvent outboxEvent(long id, String email) {
+        OutboxEvent outboxEvent = OutboxEvent.of(UserEventDto.created(email));
+        outboxEvent.setId(id);
+        return outboxEvent;
+    }
+
+    // Тест 1: Пачка отправлена и подтверждена — строки удаляются
+    @Test
+    void relay_WhenKafkaAcks_ShouldDeleteSentRows() {
+        // Given
+        List<OutboxEvent> fullBatch = List.of(outboxEvent(1L, "a@mail.ru"), outboxEvent(2L, "b@mail.ru"));
+        List<OutboxEvent> lastBatch = List.of(outboxEvent(3L, "c@mail.ru"));
+        when(outboxEventRepository.findByClaimedUntilIsNullOrClaimedUntilBeforeOrderByIdAsc(any(Instant.class),
+                eq(Limit.of(2)))).thenReturn(fullBatch, lastBatch);
+        when(userEventProducer.sendUserEvent(any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(outboxEventRepository.count()).thenReturn(5L);
+
+        // When
+        relay.relay();
+
+        // Then - полная пачка, значит сразу берем следующую; строки помечены claim до отправки
+        verify(userEventProducer, times(3)).sendUserEvent(any(UserEventDto.class));
+        assertNotNull(fullBatch.get(0).getClaimedUntil());
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(3L));
+        assertEquals(3.0, meterRegistry.get("user.outbox.sent").counter().count());
+
+        // gauge отдает значение последнего прохода и не ходит в БД сам
+        assertEquals(5.0, meterRegistry.get("user.outbox.pending").gauge().value());
+        verify(outboxEventRepository, times(1)).count();
+    }
+
+    // Тест 2: Kafka не подтвердила — строки остаются, claim снимается для следующей попытки
+    @Test
+    void relay_WhenSendFails_ShouldKeepRows() {
+        // Given
+        when(outboxEventRepository.findByClaimedUntilIsNullOrClaimedUntilBeforeOrderByIdAsc(any(Instant.class),
+                eq(Limit.of(2)))).thenReturn(List.of(outboxEvent(1L, "a@mail.ru")));
+        when(userEventProducer.sendUserEvent(any(UserEventDto.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(any());
+        verify(outboxEventRepository).releaseClaims(List.of(1L));
+        assertEquals(1.0, meterRegistry.get("user.outbox.failed").counter().count());
+    }
+}
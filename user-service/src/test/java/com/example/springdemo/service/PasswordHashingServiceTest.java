@@ -0,0 +1,125 @@
+package com.example.springdemo.service;
+
+import com.example.springdemo.exceptions.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PasswordHashingServiceTest {
+
+    private final BCryptPasswordEncoder passwordEncoder = mock(BCryptPasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService hashingService;
+
+    @AfterEach
+    void tearDown() {
+        hashingService.shutdown();
+    }
+
+    // Тест 1: Хеш считается в пуле и время попадает в метрику
+    @Test
+    void hash_ShouldEncodeAndRecordTime() {
+        // Given
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5), 1);
+        when(passwordEncoder.encode("123456")).thenReturn("hashedPassword");
+
+        // When
+        String result = hashingService.hash("123456");
+
+        // Then
+        assertEquals("hashedPassword", result);
+        assertEquals(1, meterRegistry.get("user.password.hash").timer().count());
+    }
+
+    // Тест 2: Поток занят и очередь полна — сразу отказ, а не ожидание
+    @Test
+    void hashAsync_WhenQueueIsFull_ShouldThrowOverloaded() throws Exception {
+        // Given
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5), 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+
+        CompletableFuture<String> running = hashingService.hashAsync("first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = hashingService.hashAsync("second");
+
+        // When & Then
+        assertThrows(PasswordHashingOverloadedException.class, () -> hashingService.hashAsync("third"));
+        assertEquals(1.0, meterRegistry.get("user.password.hash.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("user.password.hash.queue.depth").gauge().value());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    // Тест 3: Не дождались хеша — задача в очереди отменяется и bcrypt для нее не считается
+    @Test
+    void hash_WhenTimedOut_ShouldCancelQueuedTask() throws Exception {
+        // Given
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 1, Duration.ofMillis(100), 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.encode("first")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        CompletableFuture<String> running = hashingService.hashAsync("first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        assertThrows(PasswordHashingOverloadedException.class, () -> hashingService.hash("second"));
+        release.countDown();
+
+        // Then
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        while (meterRegistry.get("user.password.hash.queue.depth").gauge().value() > 0
+                || meterRegistry.get("user.password.hash.active").gauge().value() > 0) {
+            Thread.sleep(10);
+        }
+        verify(passwordEncoder, never()).encode("second");
+    }
+
+    // Тест 4: Импорт ждет свободного места и не занимает очередь одиночных регистраций
+    @Test
+    void hashAll_ShouldLeaveQueueForSingleRegistrations() throws Exception {
+        // Given
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5), 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash-" + invocation.getArgument(0);
+        });
+
+        CompletableFuture<List<String>> imported = CompletableFuture.supplyAsync(
+                () -> hashingService.hashAll(List.of("a", "b", "c")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<String> single = hashingService.hashAsync("single");
+
+        // Then
+        release.countDown();
+        assertEquals("hash-single", single.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("hash-a", "hash-b", "hash-c"), imported.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.get("user.password.hash.rejected").counter().count());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springdemo.service;
+
+import com.example.springdemo.dto.BulkImportResultDto;
+import com.example.springdemo.dto.BulkImportRowResultDto.Status;
+import com.example.springdemo.dto.CreateUserDto;
+import com.example.springdemo.entity.User;
+import com.example.springdemo.kafka.UserEventOutbox;
+import com.example.springdemo.mapper.UserMapper;
+import com.example.springdemo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserImportServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordHashingService passwordHashingService = mock(PasswordHashingService.class);
+    private final UserEventOutbox userEventOutbox = mock(UserEventOutbox.class);
+    private final UserImportParser parser = new UserImportParser(new ObjectMapper());
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new UserImportService(userRepository, passwordHashingService, new UserMapper(), userEventOutbox,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+
+        when(passwordHashingService.hashAll(anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream().map(p -> "hash").toList());
+        AtomicLong ids = new AtomicLong();
+        when(userRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>(invocation.getArgument(0));
+            users.forEach(user -> user.setId(ids.incrementAndGet()));
+            return users;
+        });
+    }
+
+    // Тест 1: Отчет по каждой строке — создан, дубликат в базе, дубликат в файле, невалидный (регистр email не важен)
+    @Test
+    void importUsers_ShouldReportEveryRow() {
+        // Given
+        List<CreateUserDto> users = List.of(
+                new CreateUserDto("Артур", "Марченко", "artur@mail.ru", 25, "123456"),
+                new CreateUserDto("Мария", "Иванова", "Existing@Mail.ru", 30, "123456"),
+                new CreateUserDto("Артур", "Дубль", "ARTUR@mail.ru", 25, "123456"),
+                new CreateUserDto("", "Без имени", "noname@mail.ru", 20, "123"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("existing@mail.ru"));
+
+        // When
+        BulkImportResultDto result = importService.importUsers(users);
+
+        // Then
+        assertEquals(4, result.total());
+        assertEquals(1, result.created());
+        assertEquals(Status.CREATED, result.rows().get(0).status());
+        assertNotNull(result.rows().get(0).id());
+        assertEquals(Status.DUPLICATE, result.rows().get(1).status());
+        assertEquals(Status.DUPLICATE, result.rows().get(2).status());
+        assertEquals(Status.INVALID, result.rows().get(3).status());
+        verify(userEventOutbox).appendAll(argThat(events -> events.size() == 1));
+    }
+
+    // Тест 2: CSV читается пачками — один запрос уникальности и один saveAll на пачку
+    @Test
+    void importUsers_FromCsv_ShouldProcessInChunks() {
+        // Given
+        String csv = """
+                name,lastName,email,age,password
+                Артур,Марченко,a@mail.ru,25,123456
+                Мария,Иванова,b@mail.ru,,123456
+                Иван,Петров,c@mail.ru,abc,123456
+                Олег,Сидоров,d@mail.ru,40,123456
+                """;
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        // When
+        BulkImportResultDto result = importService.importUsers(parser.parseCsv(new BufferedReader(new StringReader(csv))));
+
+        // Then
+        assertEquals(4, result.total());
+        assertEquals(3, result.created());
+        assertEquals(Status.INVALID, result.rows().get(2).status());
+        assertEquals(3, result.rows().get(2).row());
+        verify(userRepository, times(2)).findExistingEmails(anyCollection());
+        verify(userRepository, times(2)).saveAll(anyList());
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.springdemo.service;
 
 import com.example.common.dto.UserEventDto;
+import com.example.springdemo.cache.UserCache;
 import com.example.springdemo.dto.CreateUserDto;
 import com.example.springdemo.dto.UpdateUserDto;
 import com.example.springdemo.dto.UserResponseDto;
@@ -8,22 +9,38 @@ import com.example.springdemo.entity.User;
 import com.example.springdemo.exceptions.EmailAlreadyExistsException;
 import com.example.springdemo.exceptions.UserNotFoundException;
 import com.example.springdemo.exceptions.UserAlreadyDeletedException;
-import com.example.springdemo.kafka.UserEventProducer;
+import com.example.springdemo.exceptions.UserVersionMismatchException;
+import com.example.springdemo.kafka.UserCacheInvalidationPublisher;
+import com.example.springdemo.kafka.UserEventOutbox;
 import com.example.springdemo.mapper.UserMapper;
 import com.example.springdemo.repository.UserRepository;
+import com.example.springdemo.repository.UserSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,14 +50,28 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Mock
-    private UserEventProducer userEventProducer;
+    private UserEventOutbox userEventOutbox;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @Mock
     private UserMapper userMapper;
 
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private UserCache userCache = new UserCache(meterRegistry, 1000, Duration.ofMinutes(10));
+
+    @Mock
+    private UserCacheInvalidationPublisher userCacheInvalidationPublisher;
+
+    @Spy
+    private UserServiceMetrics metrics = new UserServiceMetrics(meterRegistry);
+
     @InjectMocks
     private UserService userService;
 
@@ -55,6 +86,12 @@ class UserServiceTest {
         return dto;
     }
 
+    // так Spring Data оборачивает нарушение уникального индекса email (имя — как у H2, в верхнем регистре)
+    private static DataIntegrityViolationException emailIndexViolation() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), "PUBLIC.IDX_USERS_EMAIL_INDEX_4"));
+    }
+
     // Тест 1: Успешное создание пользователя
     @Test
     void createUser_WhenEmailNotExists_ShouldCreateUser() {
@@ -66,16 +103,11 @@ class UserServiceTest {
         savedUser.setEmail("artur@mail.ru");
         UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
 
-        when(userRepository.existsByEmail("artur@mail.ru")).thenReturn(false);
         when(userMapper.toEntity(createDto)).thenReturn(userEntity);
-        when(passwordEncoder.encode("123456")).thenReturn("hashedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(passwordHashingService.hash("123456")).thenReturn("hashedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
         when(userMapper.toDto(savedUser)).thenReturn(responseDto);
 
-        // Mock Kafka
-        CompletableFuture<Void> kafkaFuture = CompletableFuture.completedFuture(null);
-        when(userEventProducer.sendUserEvent(any(UserEventDto.class))).thenReturn(kafkaFuture);
-
         // When
         UserResponseDto result = userService.createUser(createDto);
 
@@ -87,10 +119,11 @@ class UserServiceTest {
         assertEquals("artur@mail.ru", result.getEmail());
         assertEquals(25, result.getAge());
 
-        verify(userRepository).existsByEmail("artur@mail.ru");
-        verify(userRepository).save(any(User.class));
-        verify(passwordEncoder).encode("123456");
-        verify(userEventProducer).sendUserEvent(any(UserEventDto.class));
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(passwordHashingService).hash("123456");
+        verify(userEventOutbox).append(argThat(event ->
+                event.eventType() == UserEventDto.EventType.USER_CREATED && "artur@mail.ru".equals(event.email())));
     }
 
     // Тест 2: Создание пользователя с существующим email
@@ -98,7 +131,8 @@ class UserServiceTest {
     void createUser_WhenEmailExists_ShouldThrowEmailAlreadyExistsException() {
         // Given
         CreateUserDto createDto = new CreateUserDto("Артур", "Марченко", "existing@mail.ru", 25, "123456");
-        when(userRepository.existsByEmail("existing@mail.ru")).thenReturn(true);
+        when(userMapper.toEntity(createDto)).thenReturn(new User());
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(emailIndexViolation());
 
         // When & Then
         EmailAlreadyExistsException exception = assertThrows(EmailAlreadyExistsException.class, () -> {
@@ -106,8 +140,11 @@ class UserServiceTest {
         });
 
         assertTrue(exception.getMessage().contains("existing@mail.ru"));
-        verify(userRepository, never()).save(any(User.class));
-        verify(userEventProducer, never()).sendUserEvent(any(UserEventDto.class));
+        verify(userEventOutbox, never()).append(any(UserEventDto.class));
+        assertEquals(1, meterRegistry.get("user.service")
+                .tags("method", "createUser", "outcome", "error").timer().count());
+        assertEquals(0, meterRegistry.get("user.service")
+                .tags("method", "createUser", "outcome", "success").timer().count());
     }
 
     // Тест 3: Успешное обновление пользователя
@@ -115,7 +152,7 @@ class UserServiceTest {
     void updateUser_WhenUserExists_ShouldUpdateUser() {
         // Given
         Long userId = 1L;
-        UpdateUserDto updateDto = new UpdateUserDto("Артур", "Дмитриев", "artur.dmitriev@mail.ru", 30);
+        UpdateUserDto updateDto = new UpdateUserDto("Артур", "Дмитриев", "Artur.Dmitriev@mail.ru", 30);
 
         User existingUser = new User();
         existingUser.setId(userId);
@@ -126,15 +163,15 @@ class UserServiceTest {
 
         User updatedUser = new User();
         updatedUser.setId(userId);
+        updatedUser.setEmail("artur.dmitriev@mail.ru");
         UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Дмитриев", "artur.dmitriev@mail.ru", 30);
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail("artur.dmitriev@mail.ru")).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(updatedUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(updatedUser);
         when(userMapper.toDto(updatedUser)).thenReturn(responseDto);
 
         // When
-        UserResponseDto result = userService.updateUser(userId, updateDto);
+        UserResponseDto result = userService.updateUser(userId, updateDto, null);
 
         // Then
         assertNotNull(result);
@@ -144,8 +181,12 @@ class UserServiceTest {
         assertEquals("artur.dmitriev@mail.ru", result.getEmail());
         assertEquals(30, result.getAge());
 
-        verify(userRepository).save(existingUser);
+        verify(userRepository).saveAndFlush(existingUser);
+        assertEquals("artur.dmitriev@mail.ru", existingUser.getEmail());
         assertNotNull(existingUser.getUpdatedAt());
+        verify(userEventOutbox).append(argThat(event ->
+                event.eventType() == UserEventDto.EventType.USER_UPDATED
+                        && "artur.dmitriev@mail.ru".equals(event.email())));
     }
 
     // Тест 4: Обновление пользователя с существующим email
@@ -153,22 +194,38 @@ class UserServiceTest {
     void updateUser_WhenEmailExists_ShouldThrowEmailAlreadyExistsException() {
         // Given
         Long userId = 1L;
-        UpdateUserDto updateDto = new UpdateUserDto("Артур", "Марченко", "existing@mail.ru", 30);
+        UpdateUserDto updateDto = new UpdateUserDto("Артур", "Марченко", " Existing@Mail.RU ", 30);
 
         User existingUser = new User();
         existingUser.setId(userId);
         existingUser.setEmail("artur@mail.ru");
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.existsByEmail("existing@mail.ru")).thenReturn(true);
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(emailIndexViolation());
 
         // When & Then
         EmailAlreadyExistsException exception = assertThrows(EmailAlreadyExistsException.class, () -> {
-            userService.updateUser(userId, updateDto);
+            userService.updateUser(userId, updateDto, null);
         });
 
-        assertTrue(exception.getMessage().contains("existing@mail.ru"));
-        verify(userRepository, never()).save(any(User.class));
+        // в сообщении адрес, который записывали, а не ввод клиента
+        assertTrue(exception.getMessage().contains("Email existing@mail.ru "));
+        verify(userCacheInvalidationPublisher, never()).publish(anyLong(), anyString(), anyString());
+    }
+
+    // Тест 4a: Прочие нарушения целостности не выдаем за конфликт email
+    @Test
+    void createUser_WhenOtherConstraintViolated_ShouldRethrow() {
+        // Given
+        CreateUserDto createDto = new CreateUserDto("Артур", "Марченко", "artur@mail.ru", 25, "123456");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not-null",
+                new ConstraintViolationException("not-null", new SQLException(), "users_name_not_null"));
+        when(userMapper.toEntity(createDto)).thenReturn(new User());
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(violation);
+
+        // When & Then
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class,
+                () -> userService.createUser(createDto)));
     }
 
     // Тест 5: Получение пользователя по несуществующему ID
@@ -176,7 +233,7 @@ class UserServiceTest {
     void getUserById_WhenUserNotFound_ShouldThrowUserNotFoundException() {
         // Given
         Long userId = 999L;
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findSummaryById(userId)).thenReturn(Optional.empty());
 
         // When & Then
         UserNotFoundException exception = assertThrows(UserNotFoundException.class, () -> {
@@ -191,12 +248,10 @@ class UserServiceTest {
     void getUserById_WhenUserExists_ShouldReturnUser() {
         // Given
         Long userId = 1L;
-        User user = new User();
-        user.setId(userId);
-        user.setEmail("artur@mail.ru");
+        UserSummary user = new UserSummary(userId, "Артур", "Марченко", "artur@mail.ru", 25, 0L);
         UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.findSummaryById(userId)).thenReturn(Optional.of(user));
         when(userMapper.toDto(user)).thenReturn(responseDto);
 
         // When
@@ -206,30 +261,29 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("artur@mail.ru", result.getEmail());
-        verify(userRepository).findById(userId);
+        verify(userRepository).findSummaryById(userId);
+        verify(userRepository, never()).findById(anyLong());
     }
 
-    // Тест 7: Успешное получение пользователя по email
+    // Тест 7: Успешное получение пользователя по email (в БД ищем в нижнем регистре)
     @Test
     void getUserByEmail_WhenUserExists_ShouldReturnUser() {
         // Given
         String email = "artur@mail.ru";
-        User user = new User();
-        user.setId(1L);
-        user.setEmail(email);
+        UserSummary user = new UserSummary(1L, "Артур", "Марченко", email, 25, 0L);
         UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
 
-        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userRepository.findSummaryByEmail(email)).thenReturn(Optional.of(user));
         when(userMapper.toDto(user)).thenReturn(responseDto);
 
         // When
-        UserResponseDto result = userService.getUserByEmail(email);
+        UserResponseDto result = userService.getUserByEmail(" Artur@Mail.RU");
 
         // Then
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("artur@mail.ru", result.getEmail());
-        verify(userRepository).findByEmail(email);
+        verify(userRepository).findSummaryByEmail(email);
     }
 
     // Тест 8: Получение пользователя по несуществующему email
@@ -237,7 +291,7 @@ class UserServiceTest {
     void getUserByEmail_WhenUserNotFound_ShouldThrowUserNotFoundException() {
         // Given
         String email = "nonexistent@mail.ru";
-        when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
+        when(userRepository.findSummaryByEmail(email)).thenReturn(Optional.empty());
 
         // When & Then
         UserNotFoundException exception = assertThrows(UserNotFoundException.class, () -> {
@@ -260,17 +314,14 @@ class UserServiceTest {
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
         when(userRepository.save(any(User.class))).thenReturn(user);
 
-        // Mock Kafka
-        CompletableFuture<Void> kafkaFuture = CompletableFuture.completedFuture(null);
-        when(userEventProducer.sendUserEvent(any(UserEventDto.class))).thenReturn(kafkaFuture);
-
         // When
         userService.deleteUserById(userId);
 
         // Then
         verify(userRepository).save(user);
         assertFalse(user.getIsActive());
-        verify(userEventProducer).sendUserEvent(any(UserEventDto.class));
+        verify(userEventOutbox).append(argThat(event ->
+                event.eventType() == UserEventDto.EventType.USER_DELETED && "artur@mail.ru".equals(event.email())));
     }
 
     // Тест 10: Удаление уже удаленного пользователя
@@ -313,23 +364,19 @@ class UserServiceTest {
     @Test
     void getAllUsers_WhenActiveUsersExist_ShouldReturnUsers() {
         // Given
-        User user1 = new User();
-        user1.setId(1L);
-        user1.setIsActive(true);
-
-        User user2 = new User();
-        user2.setId(2L);
-        user2.setIsActive(true);
+        UserSummary user1 = new UserSummary(1L, "Артур", "Марченко", "artur@mail.ru", 25, 0L);
+        UserSummary user2 = new UserSummary(2L, "Мария", "Иванова", "maria@mail.ru", 30, 0L);
 
         UserResponseDto dto1 = createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
         UserResponseDto dto2 = createUserResponseDto(2L, "Мария", "Иванова", "maria@mail.ru", 30);
 
-        when(userRepository.findAllByIsActiveTrue()).thenReturn(List.of(user1, user2));
+        when(userRepository.findActiveSummaries(0L, Limit.of(50)))
+                .thenReturn(List.of(user1, user2));
         when(userMapper.toDto(user1)).thenReturn(dto1);
         when(userMapper.toDto(user2)).thenReturn(dto2);
 
         // When
-        List<UserResponseDto> result = userService.getAllUsers();
+        List<UserResponseDto> result = userService.getAllUsers(null, 50);
 
         // Then
         assertEquals(2, result.size());
@@ -337,20 +384,146 @@ class UserServiceTest {
         assertEquals("artur@mail.ru", result.get(0).getEmail());
         assertEquals(2L, result.get(1).getId());
         assertEquals("maria@mail.ru", result.get(1).getEmail());
-        verify(userRepository).findAllByIsActiveTrue();
+        verify(userRepository).findActiveSummaries(0L, Limit.of(50));
     }
 
     // Тест 13: Получение всех пользователей когда нет активных
     @Test
     void getAllUsers_WhenNoActiveUsers_ShouldThrowUserNotFoundException() {
         // Given
-        when(userRepository.findAllByIsActiveTrue()).thenReturn(List.of());
+        when(userRepository.findActiveSummaries(eq(0L), any(Limit.class)))
+                .thenReturn(List.of());
 
         // When & Then
         UserNotFoundException exception = assertThrows(UserNotFoundException.class, () -> {
-            userService.getAllUsers();
+            userService.getAllUsers(null, 50);
         });
 
         assertTrue(exception.getMessage().contains("не найден"));
     }
-}
\ No newline at end of file
+
+    // Тест 14: Следующая страница по курсору, limit режется до максимума
+    @Test
+    void getAllUsers_WithCursor_ShouldQueryAfterIdWithClampedLimit() {
+        // Given
+        when(userRepository.findActiveSummaries(100L, Limit.of(UserService.MAX_PAGE_SIZE)))
+                .thenReturn(List.of());
+
+        // When
+        List<UserResponseDto> result = userService.getAllUsers(100L, 100_000);
+
+        // Then - пустая не первая страница это конец списка, а не ошибка
+        assertTrue(result.isEmpty());
+    }
+
+    // Тест 15: Поток всех пользователей читает страницы пока не придет неполная
+    @Test
+    void streamAllUsers_ShouldReadPagesUntilPartialPage() {
+        // Given
+        List<UserSummary> fullPage = new java.util.ArrayList<>();
+        for (long i = 1; i <= 500; i++) {
+            fullPage.add(new UserSummary(i, "Артур", "Марченко", "user" + i + "@mail.ru", 25, 0L));
+        }
+        UserSummary last = new UserSummary(501L, "Артур", "Марченко", "user501@mail.ru", 25, 0L);
+
+        when(userRepository.findActiveSummaries(0L, Limit.of(500))).thenReturn(fullPage);
+        when(userRepository.findActiveSummaries(500L, Limit.of(500))).thenReturn(List.of(last));
+        when(userMapper.toDto(any(UserSummary.class))).thenReturn(new UserResponseDto());
+
+        // When
+        long count = userService.streamAllUsers().count();
+
+        // Then
+        assertEquals(501, count);
+        verify(userRepository, times(2)).findActiveSummaries(anyLong(), any(Limit.class));
+    }
+
+    // Тест 16: Повторный запрос по id и по email обслуживается из кэша
+    @Test
+    void getUserById_WhenCalledTwice_ShouldHitDatabaseOnce() {
+        // Given
+        Long userId = 1L;
+        UserSummary user = new UserSummary(userId, "Артур", "Марченко", "artur@mail.ru", 25, 0L);
+        UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25);
+
+        when(userRepository.findSummaryById(userId)).thenReturn(Optional.of(user));
+        when(userMapper.toDto(user)).thenReturn(responseDto);
+
+        // When
+        userService.getUserById(userId);
+        userService.getUserById(userId);
+        UserResponseDto byEmail = userService.getUserByEmail("Artur@Mail.ru");
+
+        // Then
+        assertEquals(1L, byEmail.getId());
+        verify(userRepository, times(1)).findSummaryById(userId);
+        verify(userRepository, never()).findSummaryByEmail(anyString());
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", "users.byId", "result", "hit")
+                .functionCounter().count());
+    }
+
+    // Тест 17: Обновление сбрасывает кэш по id и по старому email
+    @Test
+    void updateUser_ShouldInvalidateCachedUser() {
+        // Given
+        Long userId = 1L;
+        User existingUser = new User();
+        existingUser.setId(userId);
+        existingUser.setEmail("artur@mail.ru");
+        userCache.put(createUserResponseDto(1L, "Артур", "Марченко", "artur@mail.ru", 25));
+
+        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(existingUser);
+        when(userRepository.findSummaryByEmail("artur@mail.ru")).thenReturn(Optional.empty());
+
+        // When
+        userService.updateUser(userId, new UpdateUserDto(null, null, "new@mail.ru", null), null);
+
+        // Then - по старому адресу больше не находим
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByEmail("artur@mail.ru"));
+        verify(userCacheInvalidationPublisher).publish(userId, "artur@mail.ru", "new@mail.ru");
+    }
+
+    // Тест 18: If-Match с версией — один UPDATE без чтения сущности, событие USER_UPDATED
+    @Test
+    void updateUser_WithExpectedVersion_ShouldUpdateWithoutLoadingEntity() {
+        // Given
+        Long userId = 1L;
+        UpdateUserDto updateDto = new UpdateUserDto(null, null, "New@Mail.ru", null);
+        UserSummary updated = new UserSummary(userId, "Артур", "Марченко", "new@mail.ru", 25, 4L);
+        UserResponseDto responseDto = createUserResponseDto(1L, "Артур", "Марченко", "new@mail.ru", 25);
+
+        when(userRepository.updateIfVersionMatches(eq(userId), eq(3L),
+                argThat(changes -> "new@mail.ru".equals(changes.email()) && changes.name() == null),
+                any(Instant.class))).thenReturn(1);
+        when(userRepository.findSummaryById(userId)).thenReturn(Optional.of(updated));
+        when(userMapper.toDto(updated)).thenReturn(responseDto);
+
+        // When
+        UserResponseDto result = userService.updateUser(userId, updateDto, 3L);
+
+        // Then
+        assertSame(responseDto, result);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userEventOutbox).append(argThat(event ->
+                event.eventType() == UserEventDto.EventType.USER_UPDATED && "new@mail.ru".equals(event.email())));
+        verify(userCacheInvalidationPublisher).publish(userId, "new@mail.ru");
+    }
+
+    // Тест 19: версия из If-Match устарела — 412, ничего не публикуем
+    @Test
+    void updateUser_WithStaleVersion_ShouldThrowVersionMismatch() {
+        // Given
+        Long userId = 1L;
+        when(userRepository.updateIfVersionMatches(eq(userId), eq(3L), any(UpdateUserDto.class), any(Instant.class)))
+                .thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        // When & Then
+        assertThrows(UserVersionMismatchException.class,
+                () -> userService.updateUser(userId, new UpdateUserDto("Артур", null, null, null), 3L));
+        verify(userEventOutbox, never()).append(any(UserEventDto.class));
+        verify(userCacheInvalidationPublisher, never()).publish(anyLong(), any(String[].class));
+    }
+}